@@ -0,0 +1,19 @@
+package design_patterns.behavioural.strategy.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reports the number of compareTo calls per element for one sort of a
+ * benchmark's input, as the secondary result
+ * {@code comparisonsPerElement}. The benchmarks count it once, with Books
+ * that count their comparisons, before the timed sorts begin, so counting
+ * does not slow those down.
+ */
+@AuxCounters(AuxCounters.Type.EVENTS)
+@State(Scope.Thread)
+public class ComparisonCounter {
+
+    public double comparisonsPerElement;
+}
@@ -0,0 +1,75 @@
+package design_patterns.behavioural.strategy.benchmark;
+
+import design_patterns.behavioural.strategy.sort_strategies.Sorter;
+import design_patterns.behavioural.strategy.with_strategy.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the quadratic Sorter&lt;Book&gt; strategies on sorted,
+ * reverse-sorted, random and nearly-sorted lists of 10 to 10,000 Books,
+ * stored in both an ArrayList and a LinkedList.
+ * <p>
+ * The score is sorts per second. Each sort is of a fresh copy of the input,
+ * and the copy is part of the time measured. The comparisons per element
+ * are reported as the secondary result {@code comparisonsPerElement}, and
+ * the allocation rate by running with the gc profiler, which counts the
+ * allocations of every thread:
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar QuadraticSorterBenchmark -prof gc
+ * </pre>
+ * Larger lists would take hours; the O(n log n) sorters are measured up to
+ * 1,000,000 Books in {@link SorterBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 3, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class QuadraticSorterBenchmark {
+
+    @Param({"InsertionSorter", "BinaryInsertionSorter", "SelectionSorter"})
+    public String sorter;
+
+    @Param({"ARRAY_LIST", "LINKED_LIST"})
+    public SortInput.ListKind list;
+
+    @Param({"SORTED", "REVERSED", "RANDOM", "NEARLY_SORTED"})
+    public SortInput.Shape shape;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int size;
+
+    private Sorter<Book> instance;
+    private List<Book> books;
+    private double comparisonsPerElement;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        instance = SortInput.sorter(sorter);
+        books = SortInput.books(size, shape, false);
+        comparisonsPerElement = SortInput.comparisonsPerElement(instance, list, size, shape);
+    }
+
+    @Benchmark
+    public List<Book> sort(ComparisonCounter comparisons) {
+        List<Book> copy = list.copy(books);
+        instance.sort(copy);
+        comparisons.comparisonsPerElement = comparisonsPerElement;
+        return copy;
+    }
+}
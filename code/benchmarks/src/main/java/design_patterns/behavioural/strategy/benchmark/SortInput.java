@@ -0,0 +1,143 @@
+package design_patterns.behavioural.strategy.benchmark;
+
+import design_patterns.behavioural.strategy.sort_strategies.InsertionSorter;
+import design_patterns.behavioural.strategy.sort_strategies.ParallelMergeSorter;
+import design_patterns.behavioural.strategy.sort_strategies.SelectionSorter;
+import design_patterns.behavioural.strategy.sort_strategies.Sorter;
+import design_patterns.behavioural.strategy.sort_strategies.TimSorter;
+import design_patterns.behavioural.strategy.with_strategy.Book;
+import design_patterns.behavioural.strategy.with_strategy.IsbnKeySorter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The sorters, lists and inputs shared by the sorter benchmarks.
+ */
+public final class SortInput {
+
+    /**
+     * The order of the Books before they are sorted.
+     */
+    public enum Shape {SORTED, REVERSED, RANDOM, NEARLY_SORTED}
+
+    /**
+     * The kind of list the Books are sorted in.
+     */
+    public enum ListKind {
+        ARRAY_LIST {
+            @Override
+            List<Book> copy(List<Book> books) {
+                return new ArrayList<>(books);
+            }
+        },
+        LINKED_LIST {
+            @Override
+            List<Book> copy(List<Book> books) {
+                return new LinkedList<>(books);
+            }
+        };
+
+        /**
+         * Returns a new list of this kind holding books.
+         */
+        abstract List<Book> copy(List<Book> books);
+    }
+
+    private SortInput() {
+    }
+
+    /**
+     * Returns a new instance of the sorter with the given name.
+     */
+    static Sorter<Book> sorter(String name) {
+        switch (name) {
+            case "InsertionSorter":
+                return new InsertionSorter<>();
+            case "BinaryInsertionSorter":
+                return new InsertionSorter<>(true);
+            case "SelectionSorter":
+                return new SelectionSorter<>();
+            case "TimSorter":
+                return new TimSorter<>();
+            case "ParallelMergeSorter":
+                return new ParallelMergeSorter<>();
+            case "IsbnKeySorter":
+                return new IsbnKeySorter();
+            default:
+                throw new IllegalArgumentException("Unknown sorter: " + name);
+        }
+    }
+
+    /**
+     * Returns size Books in the given order. The same size and shape always
+     * give the same Books.
+     *
+     * @param counting whether the Books count their comparisons in
+     *                 {@link CountingBook#COMPARISONS}
+     */
+    static List<Book> books(int size, Shape shape, boolean counting) {
+        Random random = new Random(size);
+        List<Book> books = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            // Ten-digit ISBNs that sort in the same order as i.
+            String isbn = String.format("%010d", i * 97L);
+            books.add(counting ? new CountingBook("Book " + i, isbn) : new Book("Book " + i, isbn));
+        }
+
+        switch (shape) {
+            case REVERSED:
+                Collections.reverse(books);
+                break;
+            case RANDOM:
+                Collections.shuffle(books, random);
+                break;
+            case NEARLY_SORTED:
+                // Swap about 1% of the items with a nearby neighbour.
+                for (int i = 0; i < size / 100 + 1; i++) {
+                    int a = random.nextInt(size);
+                    int b = Math.min(size - 1, a + 1 + random.nextInt(8));
+                    Collections.swap(books, a, b);
+                }
+                break;
+            default:
+                break;
+        }
+        return books;
+    }
+
+    /**
+     * Returns the number of compareTo calls per element that sorter makes
+     * to sort a list of the given kind, size and shape.
+     */
+    static double comparisonsPerElement(Sorter<Book> sorter, ListKind list, int size, Shape shape) {
+        List<Book> books = list.copy(books(size, shape, true));
+        CountingBook.COMPARISONS.reset();
+        sorter.sort(books);
+        return (double) CountingBook.COMPARISONS.sum() / size;
+    }
+
+    /**
+     * A Book that counts how many times it is compared. A LongAdder is used
+     * because ParallelMergeSorter compares from several threads at once.
+     * Only used to count comparisons, outside the timed sorts.
+     */
+    static final class CountingBook extends Book {
+
+        static final LongAdder COMPARISONS = new LongAdder();
+
+        CountingBook(String title, String isbn) {
+            super(title, isbn);
+        }
+
+        @Override
+        public int compareTo(Book o) {
+            COMPARISONS.increment();
+            return super.compareTo(o);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package design_patterns.structural.adapter.benchmark;
+
+import design_patterns.structural.adapter.ExchangeTicket;
+import design_patterns.structural.adapter.ObjectTicketAdapter;
+import design_patterns.structural.adapter.Ticket;
+import design_patterns.structural.adapter.TicketExchange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures trading throughput under contention for the lock-free
+ * TicketExchange, in the group {@code exchange}, and for ObjectTicketAdapters
+ * guarded by a lock per ticket, in the group {@code lockedAdapter}.
+ * <p>
+ * Every thread of a group trades the same few hot tickets at random: mostly
+ * compare-and-trades, with some undos and, for the exchange, some batch
+ * transfers of two tickets. The score is operations per second, whether or
+ * not they took effect. After each iteration every ticket's owner is checked
+ * against the last trade in its history.
+ * <p>
+ * A group runs on one thread unless told otherwise. {@link #main} runs both
+ * groups on 1 to 64 threads; a single count can be run with
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar TicketExchangeBenchmark -tg 16
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 3, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Group)
+public class TicketExchangeBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+    private static final String[] OWNERS = {"Ann", "Bob", "Cy", "Di", "Ed", "Flo", "Gus", "Hal"};
+
+    @Param({"4"})
+    public int hotTickets;
+
+    private TicketExchange exchange;
+    private List<ExchangeTicket> listed;
+    private List<Ticket> adaptees;
+    private List<ObjectTicketAdapter> adapters;
+
+    /**
+     * Runs both groups on each of 1, 2, 4, ..., 64 threads.
+     *
+     * @param args ignored
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : THREAD_COUNTS) {
+            Options options = new OptionsBuilder()
+                    .include(TicketExchangeBenchmark.class.getSimpleName())
+                    .threadGroups(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        exchange = new TicketExchange();
+        listed = new ArrayList<>();
+        adaptees = new ArrayList<>();
+        adapters = new ArrayList<>();
+        for (int i = 0; i < hotTickets; i++) {
+            listed.add(exchange.list(newTicket(i)));
+            Ticket ticket = newTicket(i);
+            adaptees.add(ticket);
+            adapters.add(new ObjectTicketAdapter(ticket));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void check() {
+        for (ExchangeTicket ticket : listed) {
+            check(ticket.getOwner(), ticket.getTradeHistory(), ticket.toString());
+        }
+        for (int i = 0; i < adapters.size(); i++) {
+            check(adaptees.get(i).getOwner(), adapters.get(i).getTradeHistory(), adapters.get(i).toString());
+        }
+    }
+
+    @Benchmark
+    @Group("exchange")
+    @GroupThreads(1)
+    public boolean exchange() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int op = random.nextInt(100);
+        ExchangeTicket ticket = listed.get(random.nextInt(listed.size()));
+        if (op < 5) {
+            try {
+                ticket.tradeUndo();
+                return true;
+            } catch (IllegalStateException e) {
+                return false;
+            }
+        } else if (op < 10 && listed.size() > 1) {
+            ExchangeTicket other = listed.get(random.nextInt(listed.size()));
+            if (other == ticket) {
+                return false;
+            }
+            return exchange.transfer(List.of(ticket, other), ticket.getOwner(), randomOwner(random));
+        } else {
+            return exchange.compareAndTrade(ticket, ticket.getOwner(), randomOwner(random));
+        }
+    }
+
+    @Benchmark
+    @Group("lockedAdapter")
+    @GroupThreads(1)
+    public boolean lockedAdapter() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ObjectTicketAdapter ticket = adapters.get(random.nextInt(adapters.size()));
+        synchronized (ticket) {
+            if (random.nextInt(100) < 5) {
+                if (ticket.getTradeHistory().isEmpty()) {
+                    return false;
+                }
+                ticket.tradeUndo();
+            } else {
+                ticket.trade(randomOwner(random));
+            }
+            return true;
+        }
+    }
+
+    /*
+     * Checks that owner is the new owner of the last trade in history.
+     */
+    private static void check(String owner, List<String> history, String ticket) {
+        if (history.isEmpty()) {
+            return;
+        }
+        String last = history.get(history.size() - 1);
+        if (!last.endsWith(", " + owner + ")")) {
+            throw new IllegalStateException(ticket + " does not match its last trade " + last);
+        }
+    }
+
+    private static Ticket newTicket(int i) {
+        Ticket ticket = new Ticket(String.valueOf(i), "Martian", LocalDateTime.of(2024, 1, 1, 20, 0), "A" + i);
+        ticket.setOwner(OWNERS[i % OWNERS.length]);
+        return ticket;
+    }
+
+    private static String randomOwner(ThreadLocalRandom random) {
+        return OWNERS[random.nextInt(OWNERS.length)];
+    }
+}
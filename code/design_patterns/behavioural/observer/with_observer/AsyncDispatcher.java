@@ -0,0 +1,244 @@
+package design_patterns.behavioural.observer.with_observer;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * Delivers property change events to observers on an Executor, so that a
+ * slow observer does not hold up the object being observed.
+ * <p>
+ * Each observer gets its own bounded queue and sees its events in the order
+ * they were fired; at most one task per observer runs at a time. What
+ * happens when a queue is full is chosen with a {@link BackpressurePolicy}.
+ * <p>
+ * An exception thrown by an observer, or a task rejected by the executor,
+ * is passed to an {@link ObserverErrorHandler}. Events whose task was
+ * rejected stay queued, and the next event tries to schedule them again.
+ * An Error thrown by an observer is left to propagate to the executor's
+ * thread, but the observer's remaining events are still delivered.
+ * <p>
+ * On Java 21 and later, {@code Executors.newVirtualThreadPerTaskExecutor()}
+ * is a good choice of executor.
+ */
+public class AsyncDispatcher implements Dispatcher {
+
+    /**
+     * What to do with a new event when an observer's queue is full.
+     */
+    public enum BackpressurePolicy {
+        /**
+         * Wait until the observer has taken an event off its queue.
+         * The executor must not run tasks on the thread that fires events.
+         * If the executor has rejected the observer's task, so that nothing
+         * will take events off the queue, the oldest event is dropped.
+         */
+        BLOCK,
+        /**
+         * Throw away the oldest queued event.
+         */
+        DROP_OLDEST,
+        /**
+         * Replace the newest queued event for the same source and property
+         * with one event that has the older old value and the newer new
+         * value. If there is no such event, the oldest one is dropped.
+         */
+        COALESCE
+    }
+
+    /**
+     * The most events one task delivers before it gives its thread back to
+     * the executor, so that one busy observer cannot starve the others.
+     */
+    private static final int BATCH_SIZE = 64;
+
+    private final Executor executor;
+    private final int capacity;
+    private final BackpressurePolicy policy;
+    private final ObserverErrorHandler errorHandler;
+
+    /**
+     * Constructs a new AsyncDispatcher that passes errors to
+     * {@link ObserverErrorHandler#UNCAUGHT}.
+     *
+     * @param executor the executor that runs the observers
+     * @param capacity the most events that can wait for one observer
+     * @param policy   what to do with a new event when a queue is full
+     */
+    public AsyncDispatcher(Executor executor, int capacity, BackpressurePolicy policy) {
+        this(executor, capacity, policy, ObserverErrorHandler.UNCAUGHT);
+    }
+
+    /**
+     * Constructs a new AsyncDispatcher.
+     *
+     * @param executor     the executor that runs the observers
+     * @param capacity     the most events that can wait for one observer
+     * @param policy       what to do with a new event when a queue is full
+     * @param errorHandler what to do when an observer throws or the
+     *                     executor rejects a task
+     */
+    public AsyncDispatcher(Executor executor, int capacity, BackpressurePolicy policy,
+                           ObserverErrorHandler errorHandler) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        this.executor = Objects.requireNonNull(executor);
+        this.capacity = capacity;
+        this.policy = Objects.requireNonNull(policy);
+        this.errorHandler = Objects.requireNonNull(errorHandler);
+    }
+
+    /**
+     * Returns an observer that queues each event and passes it on to
+     * observer on this dispatcher's executor.
+     *
+     * @param observer the observer to deliver events to
+     * @return an observer to register in place of observer
+     */
+    @Override
+    public PropertyChangeListener wrap(PropertyChangeListener observer) {
+        return new QueuedObserver(observer);
+    }
+
+    /*
+     * An observer with its own queue of events. All fields are guarded by
+     * the QueuedObserver's lock.
+     */
+    private class QueuedObserver implements PropertyChangeListener {
+
+        private final PropertyChangeListener observer;
+        private final ArrayDeque<PropertyChangeEvent> queue = new ArrayDeque<>();
+        private boolean scheduled = false;
+
+        QueuedObserver(PropertyChangeListener observer) {
+            this.observer = observer;
+        }
+
+        @Override
+        public synchronized void propertyChange(PropertyChangeEvent evt) {
+            if (!scheduled && !queue.isEmpty()) {
+                // The executor rejected the last task; try again first.
+                schedule();
+            }
+            if (queue.size() >= capacity && !makeRoom(evt)) {
+                return;
+            }
+
+            queue.addLast(evt);
+            if (!scheduled) {
+                schedule();
+            }
+        }
+
+        /*
+         * Hands a task that delivers the queued events to the executor. If
+         * the executor rejects it, the events stay queued and the rejection
+         * goes to the error handler. Called with the lock held.
+         */
+        private void schedule() {
+            scheduled = true;
+            try {
+                executor.execute(this::deliver);
+            } catch (RuntimeException e) {
+                scheduled = false;
+                notifyAll();
+                errorHandler.observerFailed(observer, queue.peekFirst(), e);
+            }
+        }
+
+        /*
+         * Makes room in the full queue for evt according to the policy.
+         * Returns false if evt has been merged into a queued event instead.
+         */
+        private boolean makeRoom(PropertyChangeEvent evt) {
+            switch (policy) {
+                case BLOCK:
+                    boolean interrupted = false;
+                    while (queue.size() >= capacity && scheduled) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                    if (queue.size() >= capacity) {
+                        queue.pollFirst();
+                    }
+                    return true;
+                case COALESCE:
+                    if (coalesce(evt)) {
+                        return false;
+                    }
+                    queue.pollFirst();
+                    return true;
+                default:
+                    queue.pollFirst();
+                    return true;
+            }
+        }
+
+        private boolean coalesce(PropertyChangeEvent evt) {
+            Iterator<PropertyChangeEvent> it = queue.descendingIterator();
+            while (it.hasNext()) {
+                PropertyChangeEvent queued = it.next();
+                if (queued.getSource() == evt.getSource()
+                        && Objects.equals(queued.getPropertyName(), evt.getPropertyName())) {
+                    it.remove();
+                    queue.addLast(new PropertyChangeEvent(evt.getSource(), evt.getPropertyName(),
+                            queued.getOldValue(), evt.getNewValue()));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /*
+         * Runs on the executor: passes queued events on to the observer, in
+         * order, until the queue is empty or a batch has been delivered.
+         */
+        private void deliver() {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                PropertyChangeEvent evt;
+                synchronized (this) {
+                    evt = queue.pollFirst();
+                    if (evt == null) {
+                        scheduled = false;
+                        return;
+                    }
+                    notifyAll();
+                }
+
+                boolean delivered = false;
+                try {
+                    try {
+                        observer.propertyChange(evt);
+                    } catch (RuntimeException e) {
+                        errorHandler.observerFailed(observer, evt, e);
+                    }
+                    delivered = true;
+                } finally {
+                    if (!delivered) {
+                        // An Error ends this task. Hand the rest of the
+                        // queue to a new task before it propagates, so the
+                        // observer still gets later events.
+                        synchronized (this) {
+                            schedule();
+                        }
+                    }
+                }
+            }
+
+            // More events are waiting; queue another task for them.
+            synchronized (this) {
+                schedule();
+            }
+        }
+    }
+}
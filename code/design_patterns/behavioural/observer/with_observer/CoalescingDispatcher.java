@@ -0,0 +1,253 @@
+package design_patterns.behavioural.observer.with_observer;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects changes for a window of time and then tells each observer only
+ * about the latest change to each property of each source.
+ * <p>
+ * If a Parcel moves from Calgary to Winnipeg to Toronto within one window,
+ * its observers see a single change from Calgary to Toronto. A change that
+ * ends where it started is not delivered at all. Changes are merged by
+ * parcel tracking number, so the handles that a {@link ParcelTracker} passes
+ * as event sources are merged too; other sources are merged by identity.
+ * <p>
+ * Observers are notified on this dispatcher's own thread, or on the thread
+ * that calls flush(), one flush at a time. The dispatcher only holds on to
+ * observers that have changes waiting, so an observer that is no longer
+ * registered is forgotten once its last changes are delivered. Exceptions
+ * thrown by observers go to an {@link ObserverErrorHandler}. Call close()
+ * when the dispatcher is no longer needed; changes that arrive after that
+ * are delivered at once, on the thread that reports them.
+ */
+public class CoalescingDispatcher implements Dispatcher, AutoCloseable {
+
+    private final ScheduledExecutorService scheduler;
+    private final ObserverErrorHandler errorHandler;
+    private final Queue<CoalescingObserver> waiting = new ConcurrentLinkedQueue<>();
+    private final Object flushLock = new Object();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+
+    /**
+     * Constructs a new CoalescingDispatcher that notifies observers once
+     * every window and passes errors to {@link ObserverErrorHandler#UNCAUGHT}.
+     *
+     * @param window the length of the window
+     * @param unit   the unit of window
+     */
+    public CoalescingDispatcher(long window, TimeUnit unit) {
+        this(window, unit, ObserverErrorHandler.UNCAUGHT);
+    }
+
+    /**
+     * Constructs a new CoalescingDispatcher that notifies observers once
+     * every window.
+     *
+     * @param window       the length of the window
+     * @param unit         the unit of window
+     * @param errorHandler what to do when an observer throws
+     */
+    public CoalescingDispatcher(long window, TimeUnit unit, ObserverErrorHandler errorHandler) {
+        this.errorHandler = Objects.requireNonNull(errorHandler);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "coalescing-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, window, window, unit);
+    }
+
+    @Override
+    public PropertyChangeListener wrap(PropertyChangeListener observer) {
+        return new CoalescingObserver(observer);
+    }
+
+    /**
+     * Notifies every observer of the changes collected so far, without
+     * waiting for the end of the window. Waits for any flush already in
+     * progress, so each observer sees its changes in order.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            // Observers that get new changes during the flush wait for the
+            // next one, so a steady stream of changes can't keep it going.
+            for (int n = waiting.size(); n > 0; n--) {
+                CoalescingObserver observer = waiting.poll();
+                if (observer == null) {
+                    break;
+                }
+                observer.flush();
+            }
+        }
+    }
+
+    /**
+     * Stops the timer and delivers any changes that are still waiting.
+     * The last flush is the timer thread's final task, so it only starts
+     * once the timer has stopped. Waits up to a second for it to finish.
+     * From then on, each change is delivered as soon as it arrives, rather
+     * than left waiting for a flush that would never come.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        scheduler.execute(this::flush);
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of events received from sources so far.
+     *
+     * @return the number of events received
+     */
+    public long getReceivedCount() {
+        return received.sum();
+    }
+
+    /**
+     * Returns the number of events that were never delivered on their own,
+     * either because they were merged into a later event or because the
+     * merged change ended where it started.
+     *
+     * @return the number of events collapsed
+     */
+    public long getCollapsedCount() {
+        return collapsed.sum();
+    }
+
+    /**
+     * Returns the number of events delivered to observers so far.
+     *
+     * @return the number of events delivered
+     */
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    /*
+     * A source and property name: events with the same key are merged. A
+     * Parcel source is identified by its tracking number, any other source
+     * by identity.
+     */
+    private static final class Key {
+
+        private final Object source;
+        private final String trackingNumber;
+        private final String propertyName;
+
+        Key(Object source, String propertyName) {
+            if (source instanceof Parcel) {
+                this.source = null;
+                this.trackingNumber = ((Parcel) source).getTrackingNumber();
+            } else {
+                this.source = source;
+                this.trackingNumber = null;
+            }
+            this.propertyName = propertyName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return source == other.source
+                    && Objects.equals(trackingNumber, other.trackingNumber)
+                    && Objects.equals(propertyName, other.propertyName);
+        }
+
+        @Override
+        public int hashCode() {
+            int id = trackingNumber != null ? trackingNumber.hashCode() : System.identityHashCode(source);
+            return 31 * id + Objects.hashCode(propertyName);
+        }
+    }
+
+    /*
+     * An observer that holds the latest change for each key until the next
+     * flush. pending is guarded by the CoalescingObserver's lock. The
+     * observer is in the dispatcher's waiting queue whenever pending is not
+     * empty.
+     */
+    private class CoalescingObserver implements PropertyChangeListener {
+
+        private final PropertyChangeListener observer;
+        private final Map<Key, PropertyChangeEvent> pending = new LinkedHashMap<>();
+
+        CoalescingObserver(PropertyChangeListener observer) {
+            this.observer = observer;
+        }
+
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+            received.increment();
+            boolean first;
+            synchronized (this) {
+                first = pending.isEmpty();
+                pending.merge(new Key(evt.getSource(), evt.getPropertyName()), evt, (older, newer) -> {
+                    collapsed.increment();
+                    return new PropertyChangeEvent(newer.getSource(), newer.getPropertyName(),
+                            older.getOldValue(), newer.getNewValue());
+                });
+            }
+            if (first) {
+                waiting.add(this);
+            }
+            if (closed.get()) {
+                // No timer is left to flush; deliver the change now, after
+                // any that are still waiting, so none is lost.
+                CoalescingDispatcher.this.flush();
+            }
+        }
+
+        void flush() {
+            List<PropertyChangeEvent> events;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                events = new ArrayList<>(pending.values());
+                pending.clear();
+            }
+
+            for (PropertyChangeEvent evt : events) {
+                if (evt.getOldValue() != null && evt.getOldValue().equals(evt.getNewValue())) {
+                    collapsed.increment();
+                    continue;
+                }
+
+                try {
+                    observer.propertyChange(evt);
+                    delivered.increment();
+                } catch (RuntimeException e) {
+                    errorHandler.observerFailed(observer, evt, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package design_patterns.behavioural.observer.with_observer;
+
+import java.beans.PropertyChangeListener;
+
+/**
+ * Decides how and when observers are told about a change.
+ */
+public interface Dispatcher {
+
+    /**
+     * Returns an observer that passes events on to observer.
+     *
+     * @param observer the observer to deliver events to
+     * @return an observer to register in place of observer
+     */
+    PropertyChangeListener wrap(PropertyChangeListener observer);
+}
@@ -0,0 +1,136 @@
+package design_patterns.behavioural.observer.with_observer;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lightweight replacement for java.beans.PropertyChangeSupport.
+ * <p>
+ * Observers are kept in an array that is copied whenever one is added or
+ * removed, and swapped in with compare-and-set, so adding, removing and
+ * firing never take a lock. Firing reads the current array without copying
+ * it, and no event object is created unless some observer is interested.
+ */
+public class ObservableSupport {
+
+    private static final Registration[] NONE = new Registration[0];
+
+    /*
+     * An observer and the property it observes, or null for all properties.
+     */
+    private static final class Registration {
+
+        private final String propertyName;
+        private final PropertyChangeListener observer;
+
+        Registration(String propertyName, PropertyChangeListener observer) {
+            this.propertyName = propertyName;
+            this.observer = observer;
+        }
+
+        boolean observes(String name) {
+            return propertyName == null || propertyName.equals(name);
+        }
+    }
+
+    private final Object source;
+    private final AtomicReference<Registration[]> registrations = new AtomicReference<>(NONE);
+
+    /**
+     * Constructs a new ObservableSupport for events about source.
+     *
+     * @param source the object whose changes are observed
+     */
+    public ObservableSupport(Object source) {
+        this.source = Objects.requireNonNull(source);
+    }
+
+    /**
+     * Adds observer to be notified of changes to the named property.
+     *
+     * @param propertyName the property to observe, or null for all properties
+     * @param observer     the observer to add
+     */
+    public void addObserver(String propertyName, PropertyChangeListener observer) {
+        Registration added = new Registration(propertyName, Objects.requireNonNull(observer));
+        Registration[] current;
+        Registration[] updated;
+        do {
+            current = registrations.get();
+            updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = added;
+        } while (!registrations.compareAndSet(current, updated));
+    }
+
+    /**
+     * Removes one registration of observer for the named property, if any.
+     *
+     * @param propertyName the property observer was added for
+     * @param observer     the observer to remove
+     */
+    public void removeObserver(String propertyName, PropertyChangeListener observer) {
+        Registration[] current;
+        Registration[] updated;
+        do {
+            current = registrations.get();
+            int index = -1;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].observer == observer
+                        && Objects.equals(current[i].propertyName, propertyName)) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return;
+            }
+
+            updated = new Registration[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, updated.length - index);
+        } while (!registrations.compareAndSet(current, updated));
+    }
+
+    /**
+     * Returns whether any observer is interested in the named property.
+     *
+     * @param propertyName the property to check
+     * @return whether the property has observers
+     */
+    public boolean hasObservers(String propertyName) {
+        for (Registration registration : registrations.get()) {
+            if (registration.observes(propertyName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Notifies the observers of the named property that it changed from
+     * oldValue to newValue. As with PropertyChangeSupport, nothing happens
+     * if both values are equal and not null.
+     *
+     * @param propertyName the property that changed
+     * @param oldValue     the property's old value
+     * @param newValue     the property's new value
+     */
+    public void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+        if (oldValue != null && oldValue.equals(newValue)) {
+            return;
+        }
+
+        PropertyChangeEvent event = null;
+        for (Registration registration : registrations.get()) {
+            if (registration.observes(propertyName)) {
+                if (event == null) {
+                    event = new PropertyChangeEvent(source, propertyName, oldValue, newValue);
+                }
+                registration.observer.propertyChange(event);
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package design_patterns.behavioural.observer.with_observer;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+
+/**
+ * Decides what happens when a dispatcher can't notify an observer: either
+ * the observer threw, or the event could not be handed to the thread that
+ * notifies it.
+ */
+@FunctionalInterface
+public interface ObserverErrorHandler {
+
+    /**
+     * Passes the exception to the uncaught exception handler of the thread
+     * it was caught on, as a thread does with an exception nobody caught.
+     * Unless one has been set, that prints the stack trace to System.err.
+     */
+    ObserverErrorHandler UNCAUGHT = (observer, event, exception) -> {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, exception);
+    };
+
+    /**
+     * Called when observer could not be notified of event. Must not throw.
+     *
+     * @param observer  the observer that was not notified
+     * @param event     the event it was not notified of
+     * @param exception what went wrong
+     */
+    void observerFailed(PropertyChangeListener observer, PropertyChangeEvent event, RuntimeException exception);
+}
@@ -1,7 +1,6 @@
 package design_patterns.behavioural.observer.with_observer;
 
 import java.beans.PropertyChangeListener;
-import java.beans.PropertyChangeSupport;
 
 /**
  * An observable parcel with a tracking number and location.
@@ -14,14 +13,26 @@ public class Parcel {
     private final String trackingNumber;
 
     /**
-     * This Parcel's location.
+     * This Parcel's location, unless it is kept by a tracker.
      */
     private String location;
 
     /**
-     * Helper class for making this class be observable
+     * Helper class for making this class be observable, or null if this
+     * Parcel is a handle into a tracker.
      */
-    private final PropertyChangeSupport observableSupport;
+    private final ObservableSupport observableSupport;
+
+    /**
+     * Delivers changes to observers on other threads, or null to notify
+     * observers directly.
+     */
+    private final Dispatcher dispatcher;
+
+    /**
+     * The tracker that keeps this Parcel's location and observers, or null.
+     */
+    private final ParcelTracker tracker;
 
     /**
      * Constructs a new Parcel with the given tracking number and location.
@@ -30,10 +41,57 @@ public class Parcel {
      * @param location       This parcel's location.
      */
     public Parcel(String trackingNumber, String location) {
+        this(trackingNumber, location, null);
+    }
+
+    /**
+     * Constructs a new Parcel with the given tracking number and location
+     * that notifies its observers through dispatcher.
+     *
+     * @param trackingNumber This parcel's tracking number.
+     * @param location       This parcel's location.
+     * @param dispatcher     Delivers changes to observers, or null to notify
+     *                       observers directly.
+     */
+    public Parcel(String trackingNumber, String location, Dispatcher dispatcher) {
         this.trackingNumber = trackingNumber;
         this.location = location;
-        this.observableSupport = new PropertyChangeSupport(this);
+        this.observableSupport = new ObservableSupport(this);
+        this.dispatcher = dispatcher;
+        this.tracker = null;
+    }
+
+    /**
+     * Constructs a handle for the parcel with the given tracking number in
+     * tracker. The handle keeps no state of its own besides the tracking
+     * number.
+     *
+     * @param trackingNumber This parcel's tracking number.
+     * @param tracker        The tracker that keeps this parcel's location.
+     */
+    Parcel(String trackingNumber, ParcelTracker tracker) {
+        this.trackingNumber = trackingNumber;
+        this.observableSupport = null;
+        this.dispatcher = null;
+        this.tracker = tracker;
+    }
 
+    /**
+     * Returns this Parcel's tracking number.
+     *
+     * @return This Parcel's tracking number.
+     */
+    public String getTrackingNumber() {
+        return trackingNumber;
+    }
+
+    /**
+     * Returns this Parcel's location.
+     *
+     * @return This Parcel's location.
+     */
+    public String getLocation() {
+        return tracker != null ? tracker.getLocation(trackingNumber) : location;
     }
 
     @Override
@@ -46,7 +104,14 @@ public class Parcel {
      * @param observer the observer to associate with this parcel
      */
     public void addObserver(PropertyChangeListener observer) {
-        observableSupport.addPropertyChangeListener("location", observer);
+        if (tracker != null) {
+            tracker.addObserver(trackingNumber, observer);
+            return;
+        }
+        if (dispatcher != null) {
+            observer = dispatcher.wrap(observer);
+        }
+        observableSupport.addObserver("location", observer);
     }
 
     /**
@@ -56,6 +121,11 @@ public class Parcel {
      */
     public void updateLocation(String newLocation) {
 
+        if (tracker != null) {
+            tracker.updateLocation(trackingNumber, newLocation);
+            return;
+        }
+
         String oldLocation = this.location;
         this.location = newLocation;
         observableSupport.firePropertyChange("location", oldLocation, newLocation);
@@ -0,0 +1,539 @@
+package design_patterns.behavioural.observer.with_observer;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tracks the locations of a very large number of parcels in one table.
+ * <p>
+ * Instead of one Parcel object with its own observers per parcel, tracking
+ * numbers and locations are stored in shards, each an open-addressing table
+ * with its own lock, so updates to different shards can run on different
+ * cores at once. Each location name is stored once and referred to by an
+ * int id. Observers can subscribe to every parcel or to a single tracking
+ * number; a parcel that nobody observes costs no listener storage at all.
+ * <p>
+ * Each parcel's changes reach its observers in the order they were stored,
+ * even when several threads update it at once, and all of a parcel's
+ * events have the same Parcel as their source while it is observed.
+ * <p>
+ * Parcel objects returned by {@link #track} and {@link #getParcel} are thin
+ * handles: they keep only the tracking number and read and update their
+ * location through this tracker.
+ */
+public class ParcelTracker {
+
+    private static final String PROPERTY = "location";
+
+    private final Shard[] shards;
+    private final int shardMask;
+
+    /*
+     * Location names by id, and ids by name. names may be replaced by a
+     * larger copy, under the tracker's lock.
+     */
+    private final Map<String, Integer> locationIds = new ConcurrentHashMap<>();
+    private volatile String[] locationNames = new String[64];
+    private int locationCount = 0;
+
+    private final List<PropertyChangeListener> globalObservers = new CopyOnWriteArrayList<>();
+
+    /*
+     * The parcels that have observers of their own or changes waiting to be
+     * delivered, by tracking number.
+     */
+    private final Map<String, ParcelEvents> observedParcels = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new ParcelTracker with four shards per available
+     * processor, rounded up to a power of two.
+     */
+    public ParcelTracker() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Constructs a new ParcelTracker.
+     *
+     * @param shardCount the number of shards, rounded up to a power of two
+     */
+    public ParcelTracker(int shardCount) {
+        int count = 1;
+        while (count < shardCount) {
+            count <<= 1;
+        }
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard();
+        }
+        this.shardMask = count - 1;
+    }
+
+    /**
+     * Starts tracking a parcel, or moves it if it is already tracked, and
+     * returns a handle for it.
+     *
+     * @param trackingNumber the parcel's tracking number
+     * @param location       the parcel's location
+     * @return a Parcel that reads and updates its location through this tracker
+     */
+    public Parcel track(String trackingNumber, String location) {
+        updateLocation(trackingNumber, location, true);
+        return new Parcel(trackingNumber, this);
+    }
+
+    /**
+     * Returns a handle for the parcel with the given tracking number, or null
+     * if it is not tracked.
+     *
+     * @param trackingNumber the parcel's tracking number
+     * @return a Parcel handle, or null
+     */
+    public Parcel getParcel(String trackingNumber) {
+        return getLocation(trackingNumber) == null ? null : new Parcel(trackingNumber, this);
+    }
+
+    /**
+     * Returns the number of parcels tracked.
+     *
+     * @return the number of parcels tracked
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the location of the parcel with the given tracking number, or
+     * null if it is not tracked.
+     *
+     * @param trackingNumber the parcel's tracking number
+     * @return the parcel's location, or null
+     */
+    public String getLocation(String trackingNumber) {
+        int id = shardFor(trackingNumber).get(trackingNumber);
+        return id < 0 ? null : locationNames[id];
+    }
+
+    /**
+     * Sets the location of a tracked parcel and notifies its observers.
+     *
+     * @param trackingNumber the parcel's tracking number
+     * @param newLocation    the parcel's new location
+     * @throws IllegalArgumentException if the parcel is not tracked
+     */
+    public void updateLocation(String trackingNumber, String newLocation) {
+        updateLocation(trackingNumber, newLocation, false);
+    }
+
+    private void updateLocation(String trackingNumber, String newLocation, boolean addIfAbsent) {
+        int newId = intern(newLocation);
+        Shard shard = shardFor(trackingNumber);
+        ParcelEvents events;
+        synchronized (shard) {
+            int oldId = shard.put(trackingNumber, newId, addIfAbsent);
+            if (oldId == Shard.ABSENT) {
+                throw new IllegalArgumentException("Parcel " + trackingNumber + " is not tracked.");
+            }
+            events = enqueue(trackingNumber, oldId, newId);
+        }
+        if (events != null) {
+            rethrow(events.deliver());
+        }
+    }
+
+    /**
+     * Sets the locations of many tracked parcels at once: trackingNumbers[i]
+     * moves to newLocations[i]. Each shard is locked only once per batch,
+     * and observers are notified after all the updates are stored, in the
+     * order of the updates for each parcel.
+     *
+     * @param trackingNumbers the parcels' tracking numbers
+     * @param newLocations    the parcels' new locations
+     * @throws IllegalArgumentException if the arrays differ in length or a
+     *                                  parcel is not tracked; the updates to
+     *                                  tracked parcels are still stored
+     */
+    public void updateLocations(String[] trackingNumbers, String[] newLocations) {
+        int n = trackingNumbers.length;
+        if (newLocations.length != n) {
+            throw new IllegalArgumentException("Expected " + n + " locations, got " + newLocations.length);
+        }
+
+        // Group the updates by shard, keeping their order within a shard.
+        int[] shardStart = new int[shards.length + 1];
+        int[] shardOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            shardOf[i] = shardIndex(trackingNumbers[i]);
+            shardStart[shardOf[i] + 1]++;
+        }
+        for (int s = 0; s < shards.length; s++) {
+            shardStart[s + 1] += shardStart[s];
+        }
+        int[] order = new int[n];
+        int[] next = Arrays.copyOf(shardStart, shards.length);
+        for (int i = 0; i < n; i++) {
+            order[next[shardOf[i]]++] = i;
+        }
+
+        int[] newIds = new int[n];
+        for (int i = 0; i < n; i++) {
+            newIds[i] = intern(newLocations[i]);
+        }
+
+        ParcelEvents[] events = new ParcelEvents[n];
+        String untracked = null;
+        for (int s = 0; s < shards.length; s++) {
+            if (shardStart[s] == shardStart[s + 1]) {
+                continue;
+            }
+            synchronized (shards[s]) {
+                for (int k = shardStart[s]; k < shardStart[s + 1]; k++) {
+                    int i = order[k];
+                    int oldId = shards[s].put(trackingNumbers[i], newIds[i], false);
+                    if (oldId == Shard.ABSENT) {
+                        untracked = trackingNumbers[i];
+                    } else {
+                        events[i] = enqueue(trackingNumbers[i], oldId, newIds[i]);
+                    }
+                }
+            }
+        }
+
+        // Deliver every parcel's changes before reporting an observer's
+        // failure, so none are left waiting for the parcel's next update.
+        Throwable failure = null;
+        for (ParcelEvents parcelEvents : events) {
+            if (parcelEvents != null) {
+                Throwable thrown = parcelEvents.deliver();
+                if (failure == null) {
+                    failure = thrown;
+                }
+            }
+        }
+        rethrow(failure);
+        if (untracked != null) {
+            throw new IllegalArgumentException("Parcel " + untracked + " is not tracked.");
+        }
+    }
+
+    /**
+     * Adds an observer that is notified when any parcel moves.
+     *
+     * @param observer the observer to add
+     */
+    public void addObserver(PropertyChangeListener observer) {
+        globalObservers.add(observer);
+    }
+
+    /**
+     * Adds an observer that is notified when the parcel with the given
+     * tracking number moves.
+     *
+     * @param trackingNumber the parcel's tracking number
+     * @param observer       the observer to add
+     */
+    public void addObserver(String trackingNumber, PropertyChangeListener observer) {
+        while (!eventsFor(trackingNumber).addObserver(observer)) {
+            // The entry was just dropped; take a new one.
+        }
+    }
+
+    /**
+     * Removes an observer added with {@link #addObserver(PropertyChangeListener)}.
+     *
+     * @param observer the observer to remove
+     */
+    public void removeObserver(PropertyChangeListener observer) {
+        globalObservers.remove(observer);
+    }
+
+    /**
+     * Removes an observer added with {@link #addObserver(String, PropertyChangeListener)}.
+     *
+     * @param trackingNumber the parcel's tracking number
+     * @param observer       the observer to remove
+     */
+    public void removeObserver(String trackingNumber, PropertyChangeListener observer) {
+        ParcelEvents events = observedParcels.get(trackingNumber);
+        if (events != null) {
+            events.removeObserver(observer);
+        }
+    }
+
+    /*
+     * Queues the change of a parcel that moved, if anyone observes it, and
+     * returns the queue to deliver it from, or null. Called with the
+     * parcel's shard locked, so each parcel's changes are queued in the
+     * order they were stored. Nothing is allocated unless the parcel has
+     * observers.
+     */
+    private ParcelEvents enqueue(String trackingNumber, int oldId, int newId) {
+        if (oldId < 0 || oldId == newId) {
+            return null;
+        }
+        if (globalObservers.isEmpty() && !observedParcels.containsKey(trackingNumber)) {
+            return null;
+        }
+        while (true) {
+            ParcelEvents events = eventsFor(trackingNumber);
+            if (events.offer(oldId, newId)) {
+                return events;
+            }
+        }
+    }
+
+    private ParcelEvents eventsFor(String trackingNumber) {
+        return observedParcels.computeIfAbsent(trackingNumber, t -> new ParcelEvents(new Parcel(t, this)));
+    }
+
+    /*
+     * Throws failure, an observer's RuntimeException or Error, if there is one.
+     */
+    private static void rethrow(Throwable failure) {
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            throw (Error) failure;
+        }
+    }
+
+    /*
+     * Returns the id of location, giving it a new id if it has none yet.
+     */
+    private int intern(String location) {
+        Integer id = locationIds.get(location);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (this) {
+            id = locationIds.get(location);
+            if (id != null) {
+                return id;
+            }
+            String[] names = locationNames;
+            if (locationCount == names.length) {
+                names = Arrays.copyOf(names, names.length * 2);
+            }
+            names[locationCount] = location;
+            locationNames = names;
+            locationIds.put(location, locationCount);
+            return locationCount++;
+        }
+    }
+
+    /*
+     * The observers of one parcel and its changes that have yet to be
+     * delivered, as pairs of old and new location ids in a ring buffer.
+     * Whichever thread finds the queue idle delivers the changes, one at a
+     * time and in order, including any queued while it does so, so a change
+     * may be delivered on another updater's thread. The entry is dropped
+     * from observedParcels once it has neither observers nor changes left;
+     * after that it accepts nothing, and a new entry is made. All fields but
+     * source and observers are guarded by the ParcelEvents' lock.
+     */
+    private final class ParcelEvents {
+
+        private final Parcel source;
+        private final List<PropertyChangeListener> observers = new CopyOnWriteArrayList<>();
+        private int[] changes = new int[8];
+        private int head = 0;
+        private int count = 0;
+        private boolean delivering = false;
+        private boolean dropped = false;
+
+        ParcelEvents(Parcel source) {
+            this.source = source;
+        }
+
+        synchronized boolean addObserver(PropertyChangeListener observer) {
+            if (dropped) {
+                return false;
+            }
+            observers.add(observer);
+            return true;
+        }
+
+        synchronized void removeObserver(PropertyChangeListener observer) {
+            observers.remove(observer);
+            dropIfUnused();
+        }
+
+        synchronized boolean offer(int oldId, int newId) {
+            if (dropped) {
+                return false;
+            }
+            if (count * 2 == changes.length) {
+                int[] larger = new int[changes.length * 2];
+                for (int k = 0; k < count * 2; k++) {
+                    larger[k] = changes[(head + k) & (changes.length - 1)];
+                }
+                changes = larger;
+                head = 0;
+            }
+            int tail = (head + count * 2) & (changes.length - 1);
+            changes[tail] = oldId;
+            changes[tail + 1] = newId;
+            count++;
+            return true;
+        }
+
+        /*
+         * Delivers the queued changes, unless another thread already is.
+         * If an observer throws, the rest of the changes are still
+         * delivered, and the first exception is returned; otherwise
+         * returns null.
+         */
+        Throwable deliver() {
+            synchronized (this) {
+                if (delivering) {
+                    return null;
+                }
+                delivering = true;
+            }
+
+            Throwable failure = null;
+            while (true) {
+                int oldId;
+                int newId;
+                synchronized (this) {
+                    if (count == 0) {
+                        delivering = false;
+                        dropIfUnused();
+                        break;
+                    }
+                    oldId = changes[head];
+                    newId = changes[head + 1];
+                    head = (head + 2) & (changes.length - 1);
+                    count--;
+                }
+                try {
+                    notifyObservers(oldId, newId);
+                } catch (RuntimeException | Error e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            return failure;
+        }
+
+        private void notifyObservers(int oldId, int newId) {
+            String[] names = locationNames;
+            PropertyChangeEvent event = new PropertyChangeEvent(source, PROPERTY, names[oldId], names[newId]);
+            for (PropertyChangeListener observer : globalObservers) {
+                observer.propertyChange(event);
+            }
+            for (PropertyChangeListener observer : observers) {
+                observer.propertyChange(event);
+            }
+        }
+
+        /*
+         * Called with the lock held.
+         */
+        private void dropIfUnused() {
+            if (observers.isEmpty() && count == 0 && !delivering) {
+                dropped = true;
+                observedParcels.remove(source.getTrackingNumber(), this);
+            }
+        }
+    }
+
+    private int shardIndex(String trackingNumber) {
+        int h = trackingNumber.hashCode();
+        return (h ^ (h >>> 16)) & shardMask;
+    }
+
+    private Shard shardFor(String trackingNumber) {
+        return shards[shardIndex(trackingNumber)];
+    }
+
+    /*
+     * An open-addressing hash table from tracking number to location id.
+     * All fields are guarded by the Shard's lock, which callers hold.
+     */
+    private static final class Shard {
+
+        static final int ABSENT = -1;
+        static final int ADDED = -2;
+
+        private String[] keys = new String[16];
+        private int[] locations = new int[16];
+        private int shift = 32 - 4;
+        private int size = 0;
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized int get(String trackingNumber) {
+            int slot = find(trackingNumber);
+            return keys[slot] == null ? ABSENT : locations[slot];
+        }
+
+        /*
+         * Stores locationId for trackingNumber and returns the old id, ADDED
+         * if the parcel was added, or ABSENT if it was not tracked and
+         * addIfAbsent is false. Called with the Shard's lock held, so that
+         * the caller can queue the change before another update is stored.
+         */
+        int put(String trackingNumber, int locationId, boolean addIfAbsent) {
+            int slot = find(trackingNumber);
+            if (keys[slot] != null) {
+                int old = locations[slot];
+                locations[slot] = locationId;
+                return old;
+            }
+            if (!addIfAbsent) {
+                return ABSENT;
+            }
+
+            keys[slot] = trackingNumber;
+            locations[slot] = locationId;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return ADDED;
+        }
+
+        /*
+         * Returns the slot that holds trackingNumber, or the empty slot
+         * where it would go.
+         */
+        private int find(String trackingNumber) {
+            // The low bits of the hash already chose the shard, so the
+            // slot is taken from the high bits of a multiplicative hash.
+            int mask = keys.length - 1;
+            int slot = (trackingNumber.hashCode() * 0x9E3779B9) >>> shift;
+            while (keys[slot] != null && !keys[slot].equals(trackingNumber)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            String[] oldKeys = keys;
+            int[] oldLocations = locations;
+            keys = new String[oldKeys.length * 2];
+            locations = new int[oldKeys.length * 2];
+            shift--;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    locations[slot] = oldLocations[i];
+                }
+            }
+        }
+    }
+}
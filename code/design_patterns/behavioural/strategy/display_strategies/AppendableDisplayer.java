@@ -0,0 +1,59 @@
+package design_patterns.behavioural.strategy.display_strategies;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+/*
+ * A BufferedDisplayer that writes to any Appendable, such as a Writer,
+ * a PrintStream or a StringBuilder.
+ */
+public class AppendableDisplayer<T> extends BufferedDisplayer<T> {
+
+    private final Appendable out;
+
+    /**
+     * Constructs a new AppendableDisplayer that displays items in natural
+     * order to System.out.
+     */
+    public AppendableDisplayer() {
+        this(System.out, false);
+    }
+
+    /**
+     * Constructs a new AppendableDisplayer.
+     *
+     * @param out          where to write the displayed items
+     * @param reverseOrder whether to display items in reverse order
+     */
+    public AppendableDisplayer(Appendable out, boolean reverseOrder) {
+        this(out, reverseOrder, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a new AppendableDisplayer.
+     *
+     * @param out          where to write the displayed items
+     * @param reverseOrder whether to display items in reverse order
+     * @param chunkSize    the number of chars to collect before writing them
+     */
+    public AppendableDisplayer(Appendable out, boolean reverseOrder, int chunkSize) {
+        super(reverseOrder, chunkSize);
+        this.out = out;
+    }
+
+    @Override
+    protected void write(CharSequence text) throws IOException {
+        out.append(text);
+    }
+
+    /**
+     * Flushes the output, if it can be flushed, once the whole display has
+     * been written.
+     */
+    @Override
+    protected void endDisplay() throws IOException {
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+}
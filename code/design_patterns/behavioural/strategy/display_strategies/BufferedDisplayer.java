@@ -0,0 +1,135 @@
+package design_patterns.behavioural.strategy.display_strategies;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.ListIterator;
+
+/*
+ * A displayer that formats items into one reusable StringBuilder and hands
+ * the text over in large chunks, instead of printing each item on its own.
+ *
+ * Items are shown in the same "(item)  " format as NaturalOrderDisplayer
+ * and ReverseOrderDisplayer. Reverse order is served by walking the list
+ * backwards, so the list is never copied.
+ *
+ * A BufferedDisplayer reuses its buffer, so it must not be shared by
+ * threads that display at the same time.
+ */
+public abstract class BufferedDisplayer<T> implements Displayer<T> {
+
+    /**
+     * The number of chars to collect before they are written out.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private final boolean reverseOrder;
+    private final int chunkSize;
+    private final StringBuilder buffer;
+
+    /**
+     * Constructs a new BufferedDisplayer.
+     *
+     * @param reverseOrder whether to display items in reverse order
+     * @param chunkSize    the number of chars to collect before writing them
+     */
+    protected BufferedDisplayer(boolean reverseOrder, int chunkSize) {
+        this.reverseOrder = reverseOrder;
+        this.chunkSize = chunkSize;
+        this.buffer = new StringBuilder(chunkSize + 64);
+    }
+
+    /**
+     * Displays items of the list in natural or reverse order.
+     */
+    @Override
+    public void display(List<T> list) {
+        displayRange(list, 0, list.size());
+    }
+
+    /**
+     * Displays one page of the list: the items at positions
+     * page * pageSize to (page + 1) * pageSize - 1 in display order.
+     * Only the items on the page are visited.
+     *
+     * @param list     the list to display
+     * @param page     the number of the page, starting at 0
+     * @param pageSize the number of items on each page
+     * @throws IllegalArgumentException if page is negative or pageSize is
+     *                                  not positive
+     */
+    public void displayPage(List<T> list, int page, int pageSize) {
+        if (page < 0) {
+            throw new IllegalArgumentException("page must not be negative: " + page);
+        }
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+        int first = (int) Math.min(list.size(), (long) page * pageSize);
+        int last = (int) Math.min(list.size(), (long) first + pageSize);
+
+        if (reverseOrder) {
+            displayRange(list, list.size() - last, list.size() - first);
+        } else {
+            displayRange(list, first, last);
+        }
+    }
+
+    /*
+     * Displays the items between from (inclusive) and to (exclusive).
+     */
+    private void displayRange(List<T> list, int from, int to) {
+        try {
+            if (reverseOrder) {
+                ListIterator<T> it = list.listIterator(to);
+                for (int i = to; i > from; i--) {
+                    append(it.previous());
+                }
+            } else {
+                ListIterator<T> it = list.listIterator(from);
+                for (int i = from; i < to; i++) {
+                    append(it.next());
+                }
+            }
+
+            buffer.append(System.lineSeparator());
+            flush();
+            endDisplay();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            // Don't let a failed display leave its text for the next one.
+            buffer.setLength(0);
+        }
+    }
+
+    private void append(T item) throws IOException {
+        buffer.append('(').append(item).append(")  ");
+        if (buffer.length() >= chunkSize) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        write(buffer);
+        buffer.setLength(0);
+    }
+
+    /**
+     * Writes out the collected text. The text must be used before this
+     * method returns, since its buffer is reused.
+     *
+     * @param text the text to write
+     * @throws IOException if the text could not be written
+     */
+    protected abstract void write(CharSequence text) throws IOException;
+
+    /**
+     * Called once after all of a display's text has been written. Does
+     * nothing by default.
+     *
+     * @throws IOException if the written text could not be flushed
+     */
+    protected void endDisplay() throws IOException {
+    }
+}
@@ -0,0 +1,72 @@
+package design_patterns.behavioural.strategy.display_strategies;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * A BufferedDisplayer that encodes text as UTF-8 into one reusable direct
+ * ByteBuffer and writes it to a channel, such as a FileChannel or a
+ * SocketChannel.
+ */
+public class ChannelDisplayer<T> extends BufferedDisplayer<T> {
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final ByteBuffer bytes;
+
+    /**
+     * Constructs a new ChannelDisplayer.
+     *
+     * @param channel      where to write the displayed items
+     * @param reverseOrder whether to display items in reverse order
+     */
+    public ChannelDisplayer(WritableByteChannel channel, boolean reverseOrder) {
+        this(channel, reverseOrder, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a new ChannelDisplayer.
+     *
+     * @param channel      where to write the displayed items
+     * @param reverseOrder whether to display items in reverse order
+     * @param chunkSize    the number of chars to collect before writing them
+     */
+    public ChannelDisplayer(WritableByteChannel channel, boolean reverseOrder, int chunkSize) {
+        super(reverseOrder, chunkSize);
+        this.channel = channel;
+        this.bytes = ByteBuffer.allocateDirect(chunkSize * 4);
+    }
+
+    @Override
+    protected void write(CharSequence text) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        encoder.reset();
+
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, bytes, true);
+            if (result.isError()) {
+                result.throwException();
+            }
+            drain();
+        } while (result.isOverflow());
+
+        while (encoder.flush(bytes).isOverflow()) {
+            drain();
+        }
+        drain();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
@@ -1,6 +1,9 @@
 package design_patterns.behavioural.strategy.sort_strategies;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.RandomAccess;
 
 /*
  * A restriction on the type that can be used to instantiate a SelectionSort:
@@ -8,18 +11,83 @@ import java.util.List;
  */
 public class InsertionSorter<T extends Comparable<T>> implements Sorter<T> {
 
+    /*
+     * Whether to find each item's sorted location with a binary search
+     * instead of comparing it against every item it moves past.
+     */
+    private final boolean binaryInsertion;
+
+    /**
+     * Constructs a new InsertionSorter that uses a linear search.
+     */
+    public InsertionSorter() {
+        this(false);
+    }
+
+    /**
+     * Constructs a new InsertionSorter.
+     *
+     * @param binaryInsertion whether to find each item's sorted location with
+     *                        a binary search, which needs O(n log n) compareTo
+     *                        calls instead of O(n^2)
+     */
+    public InsertionSorter(boolean binaryInsertion) {
+        this.binaryInsertion = binaryInsertion;
+    }
+
     @Override
     public void sort(List<T> list) {
+        // get and set take linear time on a list such as a LinkedList, so
+        // sort an ArrayList copy instead and write it back in one pass.
+        if (!(list instanceof RandomAccess)) {
+            List<T> copy = new ArrayList<>(list);
+            sort(copy);
+
+            ListIterator<T> it = list.listIterator();
+            for (T t : copy) {
+                it.next();
+                it.set(t);
+            }
+            return;
+        }
+
         for (int i = 1; i < list.size(); i++) {
             T temp = list.get(i);
 
             // Insert item from index i into its correct sorted location
             // between 0 and i inclusive.
-            int j;
-            for (j = i - 1; j >= 0 && temp.compareTo(list.get(j)) < 0; j--) {
-                list.set(j + 1, list.get(j));
+            if (binaryInsertion) {
+                int location = findLocation(list, temp, i);
+                for (int j = i; j > location; j--) {
+                    list.set(j, list.get(j - 1));
+                }
+                list.set(location, temp);
+            } else {
+                int j;
+                for (j = i - 1; j >= 0 && temp.compareTo(list.get(j)) < 0; j--) {
+                    list.set(j + 1, list.get(j));
+                }
+                list.set(j + 1, temp);
+            }
+        }
+    }
+
+    /*
+     * Returns the index between 0 and end inclusive at which item belongs
+     * among the sorted items before end. Equal items stay before item, which
+     * keeps the sort stable.
+     */
+    private int findLocation(List<T> list, T item, int end) {
+        int low = 0;
+        int high = end;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (item.compareTo(list.get(mid)) < 0) {
+                high = mid;
+            } else {
+                low = mid + 1;
             }
-            list.set(j + 1, temp);
         }
+        return low;
     }
-}
\ No newline at end of file
+}
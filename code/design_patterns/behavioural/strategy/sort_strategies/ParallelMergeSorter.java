@@ -0,0 +1,140 @@
+package design_patterns.behavioural.strategy.sort_strategies;
+
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * A merge sort that splits the work into halves and sorts the halves in
+ * parallel using the fork-join framework.
+ *
+ * The items are copied into an array once, sorted there, and written back
+ * to the list in a single pass, so the list is never indexed inside a loop.
+ */
+public class ParallelMergeSorter<T extends Comparable<T>> implements Sorter<T> {
+
+    /**
+     * Ranges smaller than this are sorted on the current thread
+     * with insertion sort instead of being split any further.
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 13;
+
+    private static final int INSERTION_THRESHOLD = 32;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a new ParallelMergeSorter that runs on the common pool.
+     */
+    public ParallelMergeSorter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new ParallelMergeSorter that runs on pool.
+     *
+     * @param pool the pool used to sort the halves in parallel
+     */
+    public ParallelMergeSorter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(List<T> list) {
+        if (list.size() < 2) {
+            return;
+        }
+
+        Comparable<T>[] items = (Comparable<T>[]) list.toArray(new Comparable<?>[0]);
+        Comparable<T>[] buffer = (Comparable<T>[]) new Comparable<?>[items.length];
+        pool.invoke(new MergeTask<>(items, buffer, 0, items.length));
+
+        ListIterator<T> it = list.listIterator();
+        for (Comparable<T> item : items) {
+            it.next();
+            it.set((T) item);
+        }
+    }
+
+    /*
+     * Sorts items between lo (inclusive) and hi (exclusive), using the same
+     * range of buffer as scratch space.
+     */
+    private static class MergeTask<T> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Comparable<T>[] items;
+        private final Comparable<T>[] buffer;
+        private final int lo;
+        private final int hi;
+
+        MergeTask(Comparable<T>[] items, Comparable<T>[] buffer, int lo, int hi) {
+            this.items = items;
+            this.buffer = buffer;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= SEQUENTIAL_THRESHOLD) {
+                sortSequentially(lo, hi);
+                return;
+            }
+
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new MergeTask<>(items, buffer, lo, mid),
+                    new MergeTask<>(items, buffer, mid, hi));
+            merge(lo, mid, hi);
+        }
+
+        private void sortSequentially(int from, int to) {
+            if (to - from <= INSERTION_THRESHOLD) {
+                insertionSort(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            sortSequentially(from, mid);
+            sortSequentially(mid, to);
+            merge(from, mid, to);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void insertionSort(int from, int to) {
+            for (int i = from + 1; i < to; i++) {
+                Comparable<T> temp = items[i];
+                int j;
+                for (j = i - 1; j >= from && temp.compareTo((T) items[j]) < 0; j--) {
+                    items[j + 1] = items[j];
+                }
+                items[j + 1] = temp;
+            }
+        }
+
+        /*
+         * Merges the sorted ranges [from, mid) and [mid, to). Taking from the
+         * left range on ties keeps the sort stable.
+         */
+        @SuppressWarnings("unchecked")
+        private void merge(int from, int mid, int to) {
+            // The halves are already in order: nothing to merge.
+            if (items[mid - 1].compareTo((T) items[mid]) <= 0) {
+                return;
+            }
+
+            System.arraycopy(items, from, buffer, from, mid - from);
+            int i = from, j = mid, k = from;
+            while (i < mid && j < to) {
+                if (items[j].compareTo((T) buffer[i]) < 0) {
+                    items[k++] = items[j++];
+                } else {
+                    items[k++] = buffer[i++];
+                }
+            }
+            System.arraycopy(buffer, i, items, k, mid - i);
+        }
+    }
+}
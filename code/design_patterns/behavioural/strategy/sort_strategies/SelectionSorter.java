@@ -1,6 +1,9 @@
 package design_patterns.behavioural.strategy.sort_strategies;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.RandomAccess;
 
 /*
  * A restriction on the type that can be used to instantiate a SelectionSort:
@@ -11,6 +14,20 @@ public class SelectionSorter<T extends Comparable<T>> implements Sorter<T> {
     @Override
     public void sort(List<T> list) {
 
+        // get and set take linear time on a list such as a LinkedList, so
+        // sort an ArrayList copy instead and write it back in one pass.
+        if (!(list instanceof RandomAccess)) {
+            List<T> copy = new ArrayList<>(list);
+            sort(copy);
+
+            ListIterator<T> it = list.listIterator();
+            for (T t : copy) {
+                it.next();
+                it.set(t);
+            }
+            return;
+        }
+
         for (int i = 0; i < list.size() - 1; i++) {
 
             // Find the index of the smallest item in the list between
@@ -29,4 +46,4 @@ public class SelectionSorter<T extends Comparable<T>> implements Sorter<T> {
             list.set(indexSmallest, temp);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,207 @@
+package design_patterns.behavioural.strategy.sort_strategies;
+
+import java.util.List;
+import java.util.ListIterator;
+
+/*
+ * A stable, adaptive merge sort in the style of TimSort.
+ *
+ * The list is scanned for runs that are already in order (descending runs are
+ * reversed). Short runs are extended with binary insertion sort, and the runs
+ * are then merged pairwise. A list that is already sorted is handled in a
+ * single pass with n - 1 comparisons.
+ */
+public class TimSorter<T extends Comparable<T>> implements Sorter<T> {
+
+    private static final int MIN_MERGE = 32;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(List<T> list) {
+        if (list.size() < 2) {
+            return;
+        }
+
+        T[] items = list.toArray((T[]) new Comparable<?>[0]);
+        new Merger<>(items).sort();
+
+        ListIterator<T> it = list.listIterator();
+        for (T item : items) {
+            it.next();
+            it.set(item);
+        }
+    }
+
+    /*
+     * Holds the state of one sort: the items, a scratch buffer and the stack
+     * of pending runs.
+     */
+    private static class Merger<T extends Comparable<T>> {
+
+        private final T[] items;
+        private T[] buffer;
+        private final int[] runStart = new int[64];
+        private final int[] runLength = new int[64];
+        private int stackSize = 0;
+
+        Merger(T[] items) {
+            this.items = items;
+        }
+
+        void sort() {
+            int lo = 0;
+            int remaining = items.length;
+            int minRun = minRunLength(remaining);
+
+            while (remaining != 0) {
+                int runLen = countRunAndMakeAscending(lo, items.length);
+
+                // Extend a short run to minRun items.
+                if (runLen < minRun) {
+                    int force = Math.min(remaining, minRun);
+                    binaryInsertionSort(lo, lo + force, lo + runLen);
+                    runLen = force;
+                }
+
+                runStart[stackSize] = lo;
+                runLength[stackSize] = runLen;
+                stackSize++;
+                mergeCollapse();
+
+                lo += runLen;
+                remaining -= runLen;
+            }
+
+            while (stackSize > 1) {
+                mergeAt(stackSize - 2);
+            }
+        }
+
+        /*
+         * Returns a run length between MIN_MERGE / 2 and MIN_MERGE such that
+         * n / minRun is close to, but no more than, a power of two.
+         */
+        private static int minRunLength(int n) {
+            int r = 0;
+            while (n >= MIN_MERGE) {
+                r |= (n & 1);
+                n >>= 1;
+            }
+            return n + r;
+        }
+
+        /*
+         * Returns the length of the run starting at lo, reversing it first
+         * if it is strictly descending (strictly, so that stability is kept).
+         */
+        private int countRunAndMakeAscending(int lo, int hi) {
+            int runHi = lo + 1;
+            if (runHi == hi) {
+                return 1;
+            }
+
+            if (items[runHi++].compareTo(items[lo]) < 0) {
+                while (runHi < hi && items[runHi].compareTo(items[runHi - 1]) < 0) {
+                    runHi++;
+                }
+                reverseRange(lo, runHi);
+            } else {
+                while (runHi < hi && items[runHi].compareTo(items[runHi - 1]) >= 0) {
+                    runHi++;
+                }
+            }
+            return runHi - lo;
+        }
+
+        private void reverseRange(int lo, int hi) {
+            hi--;
+            while (lo < hi) {
+                T temp = items[lo];
+                items[lo++] = items[hi];
+                items[hi--] = temp;
+            }
+        }
+
+        /*
+         * Sorts items between lo and hi, given that the items between lo and
+         * start are already sorted. The insertion point is found with a
+         * binary search, which keeps the number of comparisons low.
+         */
+        private void binaryInsertionSort(int lo, int hi, int start) {
+            for (; start < hi; start++) {
+                T pivot = items[start];
+
+                int left = lo;
+                int right = start;
+                while (left < right) {
+                    int mid = (left + right) >>> 1;
+                    if (pivot.compareTo(items[mid]) < 0) {
+                        right = mid;
+                    } else {
+                        left = mid + 1;
+                    }
+                }
+
+                System.arraycopy(items, left, items, left + 1, start - left);
+                items[left] = pivot;
+            }
+        }
+
+        /*
+         * Merges runs on the stack until the TimSort invariants hold again:
+         * each run is longer than the sum of the two runs above it.
+         */
+        private void mergeCollapse() {
+            while (stackSize > 1) {
+                int n = stackSize - 2;
+                if (n > 0 && runLength[n - 1] <= runLength[n] + runLength[n + 1]
+                        || n > 1 && runLength[n - 2] <= runLength[n - 1] + runLength[n]) {
+                    if (runLength[n - 1] < runLength[n + 1]) {
+                        n--;
+                    }
+                } else if (runLength[n] > runLength[n + 1]) {
+                    break;
+                }
+                mergeAt(n);
+            }
+        }
+
+        /*
+         * Merges the runs at stack positions i and i + 1.
+         */
+        @SuppressWarnings("unchecked")
+        private void mergeAt(int i) {
+            int lo = runStart[i];
+            int mid = lo + runLength[i];
+            int hi = mid + runLength[i + 1];
+
+            runLength[i] += runLength[i + 1];
+            if (i == stackSize - 3) {
+                runStart[i + 1] = runStart[i + 2];
+                runLength[i + 1] = runLength[i + 2];
+            }
+            stackSize--;
+
+            // The runs are already in order: nothing to merge.
+            if (items[mid - 1].compareTo(items[mid]) <= 0) {
+                return;
+            }
+
+            int leftLength = mid - lo;
+            if (buffer == null || buffer.length < leftLength) {
+                buffer = (T[]) new Comparable<?>[Math.max(leftLength, items.length / 2)];
+            }
+            System.arraycopy(items, lo, buffer, 0, leftLength);
+
+            int a = 0, b = mid, k = lo;
+            while (a < leftLength && b < hi) {
+                if (items[b].compareTo(buffer[a]) < 0) {
+                    items[k++] = items[b++];
+                } else {
+                    items[k++] = buffer[a++];
+                }
+            }
+            System.arraycopy(buffer, a, items, k, leftLength - a);
+        }
+    }
+}
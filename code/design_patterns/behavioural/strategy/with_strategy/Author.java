@@ -9,9 +9,11 @@ import java.util.List;
 public class Author {
 
     private String name;         // this Author's name
-    private final List<Book> books;    // this Author's books
+    private final List<Book> books;    // this Author's books, or null if index is kept
     private Sorter<Book> sorter; // this Author's sorting strategy
     private Displayer<Book> displayer;
+    private final BookIndex index; // this Author's books in ISBN order, or null
+    private boolean sorted;        // whether books is known to be sorted
 
 
     /**
@@ -22,9 +24,27 @@ public class Author {
      * @param sorter the sorting strategy used to sort books
      */
     public Author(String name, Sorter<Book> sorter, Displayer<Book> displayer) {
+        this(name, sorter, displayer, false);
+    }
+
+    /**
+     * Constructs a new Author named name that keeps its books in ISBN order
+     * as they are added, so each addBook takes O(log n) time and the books
+     * never need sorting. Such an Author has no sorting strategy.
+     *
+     * @param name      the name of the new Author
+     * @param displayer the strategy used to display books
+     */
+    public Author(String name, Displayer<Book> displayer) {
+        this(name, null, displayer, true);
+    }
+
+    private Author(String name, Sorter<Book> sorter, Displayer<Book> displayer, boolean keepSorted) {
         this.setName(name);
-        this.books = new ArrayList<>();
-        setSorter(sorter);
+        this.books = keepSorted ? null : new ArrayList<>();
+        this.index = keepSorted ? new BookIndex() : null;
+        this.sorted = true;
+        this.sorter = sorter;
         setDisplayer(displayer);
     }
 
@@ -52,15 +72,47 @@ public class Author {
      * @param book a book to be added to this Author's books
      */
     public void addBook(Book book) {
-        books.add(book);
+        if (index != null) {
+            index.add(book);
+        } else {
+            books.add(book);
+        }
+        sorted = false;
+    }
+
+    /**
+     * Returns this Author's books whose ISBN starts with prefix, in ISBN order.
+     *
+     * @param prefix the start of the ISBNs to look for
+     * @return the matching books
+     */
+    public List<Book> getBooksWithIsbnPrefix(String prefix) {
+        if (index != null) {
+            return index.withIsbnPrefix(prefix);
+        }
+
+        List<Book> result = new ArrayList<>();
+        for (Book book : books) {
+            if (book.getISBN().startsWith(prefix)) {
+                result.add(book);
+            }
+        }
+        result.sort(null);
+        return result;
     }
 
 
     /**
      * Sets the sorter for this author.
+     *
+     * @throws IllegalStateException if this Author keeps its books sorted
      */
     public void setSorter(Sorter<Book> sorter) {
+        if (index != null) {
+            throw new IllegalStateException(name + " keeps books sorted as they are added and uses no sorter.");
+        }
         this.sorter = sorter;
+        this.sorted = false;
     }
 
     /**
@@ -72,17 +124,31 @@ public class Author {
 
     /**
      * Sorts this Author's books.
+     * <p>
+     * Nothing is done if neither a book nor a sorter has been set since the
+     * last sort, nor if this Author keeps its books sorted as they are added.
      */
     public void sortBooks() {
-        sorter.sort(books);
+        if (index == null && !sorted) {
+            sorter.sort(books);
+            sorted = true;
+        }
     }
 
     public void displayBooks() {
-        displayer.display(books);
+        displayer.display(currentBooks());
+    }
+
+    /*
+     * Returns this Author's books without changing them: a view of the
+     * index, in ISBN order, if one is kept.
+     */
+    private List<Book> currentBooks() {
+        return index == null ? books : index.books();
     }
 
     @Override
     public String toString() {
-        return name + ": " + books.toString();
+        return name + ": " + currentBooks().toString();
     }
 }
@@ -0,0 +1,212 @@
+package design_patterns.behavioural.strategy.with_strategy;
+
+import java.util.AbstractSequentialList;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/*
+ * Books kept in ISBN order in a balanced search tree, so that a book can be
+ * added in O(log n) time without re-sorting the others.
+ */
+class BookIndex {
+
+    /*
+     * Books by ISBN. More than one book can share an ISBN; they are kept in
+     * the order they were added.
+     */
+    private final NavigableMap<String, List<Book>> booksByIsbn = new TreeMap<>();
+    private final List<Book> books = new Books();
+    private int size = 0;
+    private int changes = 0; // the number of books added, to spot stale cursors
+
+    /**
+     * Adds book to this index.
+     *
+     * @param book the book to add
+     */
+    void add(Book book) {
+        booksByIsbn.computeIfAbsent(book.getISBN(), isbn -> new ArrayList<>(1)).add(book);
+        size++;
+        changes++;
+    }
+
+    /**
+     * Returns an unmodifiable view of the books in this index, in ISBN
+     * order. The view reads the tree directly, so nothing is copied.
+     *
+     * @return the books in this index
+     */
+    List<Book> books() {
+        return books;
+    }
+
+    /**
+     * Returns the books whose ISBN starts with prefix, in ISBN order.
+     *
+     * @param prefix the start of the ISBNs to look for
+     * @return the matching books
+     */
+    List<Book> withIsbnPrefix(String prefix) {
+        List<Book> result = new ArrayList<>();
+        // ISBNs that start with prefix sort between prefix and prefix
+        // followed by the largest char.
+        for (List<Book> books : booksByIsbn.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            result.addAll(books);
+        }
+        return result;
+    }
+
+    /*
+     * The view returned by books(). get remembers where the last call left
+     * off, so walking the list by index in either direction takes O(log n)
+     * a step, as an iterator does, rather than O(n).
+     */
+    private final class Books extends AbstractSequentialList<Book> {
+
+        private Cursor last = null; // where the last get left off
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Book get(int index) {
+            Objects.checkIndex(index, size);
+            Cursor cursor = last;
+            if (cursor == null || cursor.expectedChanges != changes
+                    || Math.abs(cursor.index - index) > Math.min(index, size - index)) {
+                cursor = new Cursor(index);
+            } else {
+                while (cursor.index < index) {
+                    cursor.next();
+                }
+                while (cursor.index > index) {
+                    cursor.previous();
+                }
+            }
+            last = cursor;
+            return cursor.next();
+        }
+
+        @Override
+        public ListIterator<Book> listIterator(int index) {
+            if (index < 0 || index > size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return new Cursor(index);
+        }
+    }
+
+    /*
+     * A position between two books. The next book is the inner-th of those
+     * in entry, or there is none if entry is null.
+     */
+    private final class Cursor implements ListIterator<Book> {
+
+        private final int expectedChanges = changes;
+        private Map.Entry<String, List<Book>> entry;
+        private int inner = 0;
+        private int index;
+
+        /*
+         * Starts at index, walking from whichever end of the tree is nearer.
+         */
+        Cursor(int index) {
+            if (index <= size / 2) {
+                this.entry = booksByIsbn.firstEntry();
+                this.index = 0;
+                while (this.index < index) {
+                    next();
+                }
+            } else {
+                this.entry = null;
+                this.index = size;
+                while (this.index > index) {
+                    previous();
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @Override
+        public Book next() {
+            checkForChanges();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Book book = entry.getValue().get(inner);
+            if (++inner == entry.getValue().size()) {
+                entry = booksByIsbn.higherEntry(entry.getKey());
+                inner = 0;
+            }
+            index++;
+            return book;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return index > 0;
+        }
+
+        @Override
+        public Book previous() {
+            checkForChanges();
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            if (entry == null) {
+                entry = booksByIsbn.lastEntry();
+                inner = entry.getValue().size();
+            } else if (inner == 0) {
+                entry = booksByIsbn.lowerEntry(entry.getKey());
+                inner = entry.getValue().size();
+            }
+            inner--;
+            index--;
+            return entry.getValue().get(inner);
+        }
+
+        @Override
+        public int nextIndex() {
+            return index;
+        }
+
+        @Override
+        public int previousIndex() {
+            return index - 1;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void set(Book book) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(Book book) {
+            throw new UnsupportedOperationException();
+        }
+
+        private void checkForChanges() {
+            if (changes != expectedChanges) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
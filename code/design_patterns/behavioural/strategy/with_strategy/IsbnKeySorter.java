@@ -0,0 +1,137 @@
+package design_patterns.behavioural.strategy.with_strategy;
+
+import design_patterns.behavioural.strategy.sort_strategies.Sorter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.ListIterator;
+
+/*
+ * A sorter that puts Books in the same order as Book.compareTo, but without
+ * comparing any Strings.
+ *
+ * Each ISBN is encoded once into a long whose numeric order matches the
+ * String order of the ISBNs. The keys are then sorted together with each
+ * Book's original index by a radix sort on the primitive arrays, and the
+ * list is rearranged in a single pass.
+ */
+public class IsbnKeySorter implements Sorter<Book> {
+
+    /*
+     * Each character is a digit in base RADIX: 0 marks the end of a shorter
+     * ISBN, so that a prefix sorts first just as with String.compareTo.
+     */
+    private static final int RADIX = 13;
+
+    /*
+     * 13^17 - 1 is the largest key that still fits in a long.
+     */
+    private static final int MAX_LENGTH = 17;
+
+    private static final int BITS_PER_PASS = 8;
+    private static final int BUCKETS = 1 << BITS_PER_PASS;
+
+    @Override
+    public void sort(List<Book> list) {
+        int n = list.size();
+        if (n < 2) {
+            return;
+        }
+
+        Book[] books = list.toArray(new Book[0]);
+
+        int length = 0;
+        for (Book book : books) {
+            length = Math.max(length, book.getISBN().length());
+        }
+
+        long[] keys = new long[n];
+        int[] indices = new int[n];
+        long maxKey = 0;
+        for (int i = 0; i < n; i++) {
+            long key = length <= MAX_LENGTH ? encode(books[i].getISBN(), length) : -1;
+            if (key < 0) {
+                // Not an ISBN we can encode; fall back to Book.compareTo.
+                list.sort(null);
+                return;
+            }
+            keys[i] = key;
+            indices[i] = i;
+            maxKey = Math.max(maxKey, key);
+        }
+
+        radixSort(keys, indices, 64 - Long.numberOfLeadingZeros(maxKey));
+
+        ListIterator<Book> it = list.listIterator();
+        for (int index : indices) {
+            it.next();
+            it.set(books[index]);
+        }
+    }
+
+    /**
+     * Returns isbn encoded as a non-negative long, padded to length characters,
+     * or -1 if isbn contains a character other than a digit, '-' or 'X'.
+     * <p>
+     * The ISBN is encoded character by character rather than parsed as a
+     * number, so a leading zero (as in "0385659768") is kept and ISBNs of
+     * different lengths still compare as Strings do.
+     *
+     * @param isbn   the ISBN to encode
+     * @param length the length of the longest ISBN being sorted
+     * @return the encoded key, or -1
+     */
+    static long encode(String isbn, int length) {
+        long key = 0;
+        for (int i = 0; i < length; i++) {
+            int digit;
+            if (i >= isbn.length()) {
+                digit = 0;
+            } else {
+                char c = isbn.charAt(i);
+                if (c == '-') {
+                    digit = 1;
+                } else if (c >= '0' && c <= '9') {
+                    digit = c - '0' + 2;
+                } else if (c == 'X') {
+                    digit = 12;
+                } else {
+                    return -1;
+                }
+            }
+            key = key * RADIX + digit;
+        }
+        return key;
+    }
+
+    /*
+     * Sorts keys in non-decreasing order, moving indices along with them.
+     * This is a least-significant-digit radix sort, so it is stable: Books
+     * with equal ISBNs keep their original order.
+     */
+    private static void radixSort(long[] keys, int[] indices, int keyBits) {
+        int n = keys.length;
+        long[] keyBuffer = new long[n];
+        int[] indexBuffer = new int[n];
+        int[] counts = new int[BUCKETS + 1];
+
+        for (int shift = 0; shift < keyBits; shift += BITS_PER_PASS) {
+            Arrays.fill(counts, 0);
+            for (long key : keys) {
+                counts[(int) ((key >>> shift) & (BUCKETS - 1)) + 1]++;
+            }
+            for (int b = 0; b < BUCKETS; b++) {
+                counts[b + 1] += counts[b];
+            }
+            for (int i = 0; i < n; i++) {
+                int bucket = (int) ((keys[i] >>> shift) & (BUCKETS - 1));
+                int target = counts[bucket]++;
+                keyBuffer[target] = keys[i];
+                indexBuffer[target] = indices[i];
+            }
+
+            System.arraycopy(keyBuffer, 0, keys, 0, n);
+            System.arraycopy(indexBuffer, 0, indices, 0, n);
+        }
+    }
+}
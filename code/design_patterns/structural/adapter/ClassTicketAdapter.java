@@ -1,10 +1,10 @@
 package design_patterns.structural.adapter;
 
+import java.io.Closeable;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 
-public class ClassTicketAdapter extends Ticket implements Tradable {
+public class ClassTicketAdapter extends Ticket implements Tradable, Closeable {
     /*
      * Adapter (with inheritance))
      * This adapter extends the adaptee (i.e, ticket) and implements the trade methods thus showing
@@ -12,11 +12,18 @@ public class ClassTicketAdapter extends Ticket implements Tradable {
      *
      */
 
-    private final List<String> tradeHistory;
+    private final TradeHistory tradeHistory;
 
     public ClassTicketAdapter(String id, String show, LocalDateTime date, String seat) {
+        this(id, show, date, seat, HistoryPolicy.unbounded());
+    }
+
+    /*
+     * Creates a ticket that keeps its trade history according to policy.
+     */
+    public ClassTicketAdapter(String id, String show, LocalDateTime date, String seat, HistoryPolicy policy) {
         super(id, show, date, seat);
-        tradeHistory = new ArrayList<>();
+        tradeHistory = new TradeHistory(policy, id);
     }
 
     public String toString() {
@@ -26,23 +33,33 @@ public class ClassTicketAdapter extends Ticket implements Tradable {
     public void trade(String newOwner) {
         String previousOwner = getOwner();
         setOwner(newOwner);
-        this.addToHistory("(" + previousOwner + ", " + newOwner + ")");
+        this.addToHistory(previousOwner, newOwner);
     }
 
+    /*
+     * Records a trade given as "(previous, new)".
+     */
     public void addToHistory(String event) {
-        tradeHistory.add(event);
+        tradeHistory.record(event);
+    }
+
+    public void addToHistory(String previousOwner, String newOwner) {
+        tradeHistory.record(previousOwner, newOwner);
     }
 
     public List<String> getTradeHistory() {
-        return tradeHistory;
+        return tradeHistory.asStrings();
     }
 
-    public void tradeUndo() {
-        int lastTrade = getTradeHistory().size() - 1;
-        String tradeLogOfLastTrade = getTradeHistory().get(lastTrade);
-        String previousOwner = tradeLogOfLastTrade.split(",")[0].replace("(", "");
-        setOwner(previousOwner);
-        getTradeHistory().remove(lastTrade);
+    /*
+     * Deletes the file the trade history spilled to, if any.
+     */
+    @Override
+    public void close() {
+        tradeHistory.close();
+    }
 
+    public void tradeUndo() {
+        setOwner(tradeHistory.undo());
     }
 }
\ No newline at end of file
@@ -0,0 +1,278 @@
+package design_patterns.structural.adapter;
+
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+public class ExchangeTicket extends Ticket implements Tradable {
+
+    /*
+     * A ticket that can be traded from many threads at once. Tickets are
+     * listed on a TicketExchange, which creates them.
+     *
+     * The owner, a version number, whether a batch transfer has reserved
+     * the ticket, and the trades not yet undone are kept together in one
+     * immutable State, which every change replaces with a compare-and-set.
+     * The trades form a linked stack that each State shares with the one
+     * before it: a trade pushes onto it and an undo pops it. So a change
+     * takes one compare-and-set, a reader always sees a history that agrees
+     * with the owner, and the ticket only keeps the trades that have not
+     * been undone.
+     *
+     * No thread ever waits on another, except on a batch transfer that has
+     * reserved the ticket. Reserving and releasing a ticket are changes too,
+     * so a change prepared before a reservation can't slip in after it. A
+     * thread that finds the ticket reserved spins briefly, then yields,
+     * then parks for longer and longer until the transfer is done.
+     */
+
+    private static final int SPINS = 64;
+    private static final int YIELDS = 16;
+    private static final long MIN_PARK_NANOS = 1_000;
+    private static final long MAX_PARK_NANOS = 1_000_000;
+
+    private static final int ANY_OWNER = -1;
+
+    private enum Kind {SET_OWNER, TRADE, UNDO}
+
+    /*
+     * A trade not yet undone, and the latest one before it, or null.
+     */
+    private static final class Trade {
+        final int previousOwner;
+        final int newOwner;
+        final Trade below;
+
+        Trade(int previousOwner, int newOwner, Trade below) {
+            this.previousOwner = previousOwner;
+            this.newOwner = newOwner;
+            this.below = below;
+        }
+    }
+
+    private static final class State {
+        final int owner;
+        final int version;
+        final boolean reserved;
+        final Trade latestTrade;
+
+        State(int owner, int version, boolean reserved, Trade latestTrade) {
+            this.owner = owner;
+            this.version = version;
+            this.reserved = reserved;
+            this.latestTrade = latestTrade;
+        }
+    }
+
+    private final OwnerTable owners;
+    private final long sequence;
+    private final AtomicReference<State> state;
+
+    ExchangeTicket(String id, String show, LocalDateTime date, String seat, String owner,
+                   OwnerTable owners, long sequence) {
+        super(id, show, date, seat);
+        this.owners = owners;
+        this.sequence = sequence;
+        this.state = new AtomicReference<>(new State(owners.intern(owner), 0, false, null));
+    }
+
+    @Override
+    public String getOwner() {
+        return owners.name(state.get().owner);
+    }
+
+    /*
+     * Sets the owner without recording a trade.
+     */
+    @Override
+    public void setOwner(String owner) {
+        int ownerId = owners.intern(owner);
+        change(Kind.SET_OWNER, ANY_OWNER, ownerId, false);
+    }
+
+    @Override
+    public void trade(String newOwner) {
+        change(Kind.TRADE, ANY_OWNER, owners.intern(newOwner), false);
+    }
+
+    /*
+     * Trades the ticket to newOwner only if it is owned by expectedOwner
+     * at that moment, and returns whether it was traded.
+     */
+    public boolean compareAndTrade(String expectedOwner, String newOwner) {
+        return change(Kind.TRADE, owners.intern(expectedOwner), owners.intern(newOwner), false);
+    }
+
+    /*
+     * Undoes the latest trade that has not been undone.
+     *
+     * Throws IllegalStateException if there is none.
+     */
+    @Override
+    public void tradeUndo() {
+        if (!change(Kind.UNDO, ANY_OWNER, OwnerTable.NO_OWNER, false)) {
+            throw new IllegalStateException("There is no trade to undo.");
+        }
+    }
+
+    /*
+     * Returns the trades not undone, oldest first, as they were at one
+     * version. Each "(previous, new)" string is built when it is read.
+     */
+    @Override
+    public List<String> getTradeHistory() {
+        Trade latest = state.get().latestTrade;
+        int count = 0;
+        for (Trade t = latest; t != null; t = t.below) {
+            count++;
+        }
+        Trade[] trades = new Trade[count];
+        for (Trade t = latest; t != null; t = t.below) {
+            trades[--count] = t;
+        }
+
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                Trade trade = trades[index];
+                return TicketFormat.appendTrade(owners.name(trade.previousOwner), owners.name(trade.newOwner),
+                        new StringBuilder(32)).toString();
+            }
+
+            @Override
+            public int size() {
+                return trades.length;
+            }
+        };
+    }
+
+    /*
+     * Returns the number of changes made to the ticket, including undos
+     * and reservations by batch transfers.
+     */
+    public int getVersion() {
+        return state.get().version;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    /*
+     * Marks the ticket as reserved by a batch transfer. Changes from
+     * other threads wait until release is called.
+     *
+     * Throws IllegalStateException, leaving the ticket unreserved, if the
+     * ticket has too few versions left for a trade and the release, so
+     * that neither can fail once the ticket is reserved.
+     */
+    void reserve() {
+        for (int attempt = 0; ; attempt++) {
+            State s = state.get();
+            if (s.reserved) {
+                backOff(attempt);
+            } else if (s.version > Integer.MAX_VALUE - 3) {
+                throw new IllegalStateException("Ticket " + id + " has run out of versions.");
+            } else if (mark(s, true)) {
+                return;
+            }
+        }
+    }
+
+    void release() {
+        // Only the reserving thread changes a reserved ticket, so this
+        // succeeds at once.
+        while (!mark(state.get(), false)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /*
+     * Makes a trade on a ticket reserved by the calling batch transfer.
+     * Can't fail if the ticket is owned by expectedOwner, since nothing
+     * else changes a reserved ticket and reserve left room for the trade.
+     */
+    void tradeReserved(int expectedOwner, int newOwner) {
+        if (!change(Kind.TRADE, expectedOwner, newOwner, true)) {
+            throw new IllegalStateException("Reserved ticket " + id + " changed owner.");
+        }
+    }
+
+    /*
+     * Returns whether the ticket's owner ids come from owners, that is,
+     * whether it was listed on the exchange that uses them.
+     */
+    boolean usesOwners(OwnerTable owners) {
+        return this.owners == owners;
+    }
+
+    int ownerId() {
+        return state.get().owner;
+    }
+
+    /*
+     * Moves the ticket to its next State. Returns false if the owner is not
+     * expectedOwner (unless that is ANY_OWNER), or if there is no trade to
+     * undo.
+     */
+    private boolean change(Kind kind, int expectedOwner, int newOwner, boolean reservedByCaller) {
+        for (int attempt = 0; ; attempt++) {
+            State s = state.get();
+            if (s.reserved && !reservedByCaller) {
+                backOff(attempt);
+                continue;
+            }
+            if (expectedOwner != ANY_OWNER && s.owner != expectedOwner) {
+                return false;
+            }
+
+            State next;
+            if (kind == Kind.UNDO) {
+                Trade undone = s.latestTrade;
+                if (undone == null) {
+                    return false;
+                }
+                next = new State(undone.previousOwner, nextVersion(s), s.reserved, undone.below);
+            } else if (kind == Kind.TRADE) {
+                next = new State(newOwner, nextVersion(s), s.reserved, new Trade(s.owner, newOwner, s.latestTrade));
+            } else {
+                next = new State(newOwner, nextVersion(s), s.reserved, s.latestTrade);
+            }
+
+            if (state.compareAndSet(s, next)) {
+                return true;
+            }
+        }
+    }
+
+    /*
+     * Sets or clears the reservation, so that a change prepared against the
+     * earlier State can no longer be made.
+     */
+    private boolean mark(State s, boolean reserved) {
+        return state.compareAndSet(s, new State(s.owner, nextVersion(s), reserved, s.latestTrade));
+    }
+
+    private int nextVersion(State s) {
+        if (s.version == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Ticket " + id + " has run out of versions.");
+        }
+        return s.version + 1;
+    }
+
+    /*
+     * Waits before the next try at a ticket reserved by a batch transfer.
+     */
+    private static void backOff(int attempt) {
+        if (attempt < SPINS) {
+            Thread.onSpinWait();
+        } else if (attempt < SPINS + YIELDS) {
+            Thread.yield();
+        } else {
+            int doublings = Math.min(attempt - SPINS - YIELDS, 10);
+            LockSupport.parkNanos(Math.min(MIN_PARK_NANOS << doublings, MAX_PARK_NANOS));
+        }
+    }
+}
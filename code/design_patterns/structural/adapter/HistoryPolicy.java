@@ -0,0 +1,60 @@
+package design_patterns.structural.adapter;
+
+import java.nio.file.Path;
+
+public class HistoryPolicy {
+
+    /*
+     * How much trade history a Tradable keeps on the heap.
+     *
+     * An unbounded policy keeps every trade in memory. A spilling policy
+     * keeps only the latest trades in memory and moves older ones, in
+     * batches, to an append-only file of their own in a spill directory.
+     * When a spill file holds more than maxSpilled trades, its oldest
+     * trades are compacted into a single snapshot trade, from the owner
+     * before the first of them to the owner after the last.
+     */
+
+    private static final HistoryPolicy UNBOUNDED = new HistoryPolicy(Integer.MAX_VALUE, null, Integer.MAX_VALUE);
+
+    private final int maxInMemory;
+    private final Path spillDirectory;
+    private final int maxSpilled;
+
+    private HistoryPolicy(int maxInMemory, Path spillDirectory, int maxSpilled) {
+        this.maxInMemory = maxInMemory;
+        this.spillDirectory = spillDirectory;
+        this.maxSpilled = maxSpilled;
+    }
+
+    public static HistoryPolicy unbounded() {
+        return UNBOUNDED;
+    }
+
+    /*
+     * Returns a policy that keeps the latest maxInMemory trades in memory
+     * and the older ones in spillDirectory, compacting a spill file once it
+     * holds more than maxSpilled trades.
+     */
+    public static HistoryPolicy spilling(int maxInMemory, Path spillDirectory, int maxSpilled) {
+        if (maxInMemory <= 0 || maxSpilled <= 1) {
+            throw new IllegalArgumentException("Keep at least 1 trade in memory and 2 in a spill file.");
+        }
+        return new HistoryPolicy(maxInMemory, spillDirectory, maxSpilled);
+    }
+
+    public int getMaxInMemory() {
+        return maxInMemory;
+    }
+
+    /*
+     * Returns the spill directory, or null if nothing is spilled.
+     */
+    public Path getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    public int getMaxSpilled() {
+        return maxSpilled;
+    }
+}
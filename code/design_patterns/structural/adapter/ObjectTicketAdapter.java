@@ -1,9 +1,9 @@
 package design_patterns.structural.adapter;
 
-import java.util.ArrayList;
+import java.io.Closeable;
 import java.util.List;
 
-public class ObjectTicketAdapter implements Tradable {
+public class ObjectTicketAdapter implements Tradable, Closeable {
 
     /*
      * Adapter (with delegation))
@@ -14,12 +14,19 @@ public class ObjectTicketAdapter implements Tradable {
      */
 
     private final Ticket ticket;
-    private final List<String> tradeHistory;
+    private final TradeHistory tradeHistory;
 
 
     public ObjectTicketAdapter(Ticket ticket) {
+        this(ticket, HistoryPolicy.unbounded());
+    }
+
+    /*
+     * Creates an adapter that keeps its trade history according to policy.
+     */
+    public ObjectTicketAdapter(Ticket ticket, HistoryPolicy policy) {
         this.ticket = ticket;
-        this.tradeHistory = new ArrayList<>();
+        this.tradeHistory = new TradeHistory(policy, ticket.id);
     }
 
     public void setOwner(String owner) {
@@ -29,24 +36,34 @@ public class ObjectTicketAdapter implements Tradable {
     public void trade(String newOwner) {
         String previousOwner = this.ticket.getOwner();
         this.ticket.setOwner(newOwner);
-        this.addToHistory("(" + previousOwner + ", " + newOwner + ")");
+        this.addToHistory(previousOwner, newOwner);
     }
 
+    /*
+     * Records a trade given as "(previous, new)".
+     */
     public void addToHistory(String event) {
-        tradeHistory.add(event);
+        tradeHistory.record(event);
+    }
+
+    public void addToHistory(String previousOwner, String newOwner) {
+        tradeHistory.record(previousOwner, newOwner);
     }
 
     public List<String> getTradeHistory() {
-        return tradeHistory;
+        return tradeHistory.asStrings();
     }
 
-    public void tradeUndo() {
-        int lastTrade = getTradeHistory().size() - 1;
-        String tradeLogOfLastTrade = getTradeHistory().get(lastTrade);
-        String previousOwner = tradeLogOfLastTrade.split(",")[0].replace("(", "");
-        this.ticket.setOwner(previousOwner);
-        getTradeHistory().remove(lastTrade);
+    /*
+     * Deletes the file the trade history spilled to, if any.
+     */
+    @Override
+    public void close() {
+        tradeHistory.close();
+    }
 
+    public void tradeUndo() {
+        this.ticket.setOwner(tradeHistory.undo());
     }
 
     public String toString() {
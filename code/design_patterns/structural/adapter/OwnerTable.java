@@ -0,0 +1,53 @@
+package design_patterns.structural.adapter;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+class OwnerTable {
+
+    /*
+     * Gives every owner name a small int id, so that the tickets of a
+     * TicketExchange can keep their owner and trades as ints. Id 0 stands
+     * for no owner (null).
+     *
+     * Ids are never reused. Looking up a name that already has an id does
+     * not allocate or lock, and is safe from any number of threads.
+     *
+     * There is no table shared by the whole process: each TicketExchange
+     * has its own, so its names are released with it.
+     */
+
+    static final int NO_OWNER = 0;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    // Replaced by larger copies under this; read without locking.
+    private volatile String[] names = new String[64];
+    private int size = 1;
+
+    int intern(String name) {
+        if (name == null) {
+            return NO_OWNER;
+        }
+        Integer id = ids.get(name);
+        return id != null ? id : add(name);
+    }
+
+    String name(int id) {
+        return names[id];
+    }
+
+    private synchronized int add(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        String[] newNames = size == names.length ? Arrays.copyOf(names, size * 2) : names;
+        newNames[size] = name;
+        // Publish the name before its id can be seen.
+        names = newNames;
+        ids.put(name, size);
+        return size++;
+    }
+}
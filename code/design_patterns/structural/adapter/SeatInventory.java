@@ -0,0 +1,329 @@
+package design_patterns.structural.adapter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class SeatInventory {
+
+    /*
+     * An index of tickets by show, performance time and seat, for one
+     * venue with a fixed number of rows and seats per row.
+     *
+     * Each performance is found by a long key made of the show's interned
+     * id and its start time, counted in buckets since the epoch, in an
+     * open-addressing table of primitive keys. It keeps the ticket in each
+     * seat, so checking whether a seat is free and finding its owner take
+     * constant time. Those lookups take no lock and allocate nothing;
+     * adding, removing and allocating seats lock only their performance.
+     *
+     * Seats are named by a row letter and a seat number, such as "A11",
+     * and packed into a short as row << 10 | number.
+     */
+
+    private static final int SEAT_NUMBER_BITS = 10;
+    private static final int MAX_ROWS = 26;
+    private static final int MAX_SEATS_PER_ROW = (1 << SEAT_NUMBER_BITS) - 1;
+
+    /*
+     * The seats of one performance. Seats are read without locking;
+     * changes lock the performance, so different performances can be
+     * changed from different threads at once.
+     */
+    private static final class Performance {
+        final AtomicReferenceArray<Ticket> tickets;
+        volatile int taken = 0;
+
+        Performance(int seats) {
+            tickets = new AtomicReferenceArray<>(seats);
+        }
+    }
+
+    /*
+     * An open-addressing table from performance key to Performance, read
+     * without locking. A slot's key is written before its Performance is
+     * published through the AtomicReferenceArray, and a full table is
+     * replaced by a larger copy through the volatile field, so a reader
+     * that finds a Performance also sees its key. Entries are never
+     * removed. Writers lock the table.
+     */
+    private static final class PerformanceTable {
+
+        private static final class Slots {
+            final long[] keys;
+            final AtomicReferenceArray<Performance> values;
+
+            Slots(int capacity) {
+                keys = new long[capacity];
+                values = new AtomicReferenceArray<>(capacity);
+            }
+        }
+
+        private volatile Slots slots = new Slots(64);
+        private int size = 0;
+
+        Performance get(long key) {
+            Slots s = slots;
+            int mask = s.keys.length - 1;
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                Performance performance = s.values.get(i);
+                if (performance == null) {
+                    return null;
+                }
+                if (s.keys[i] == key) {
+                    return performance;
+                }
+            }
+        }
+
+        synchronized Performance getOrCreate(long key, int seats) {
+            Performance performance = get(key);
+            if (performance == null) {
+                if ((size + 1) * 2 > slots.keys.length) {
+                    Slots larger = new Slots(slots.keys.length * 2);
+                    for (int i = 0; i < slots.keys.length; i++) {
+                        Performance old = slots.values.get(i);
+                        if (old != null) {
+                            insert(larger, slots.keys[i], old);
+                        }
+                    }
+                    slots = larger;
+                }
+                performance = new Performance(seats);
+                insert(slots, key, performance);
+                size++;
+            }
+            return performance;
+        }
+
+        private static void insert(Slots s, long key, Performance performance) {
+            int mask = s.keys.length - 1;
+            int i = hash(key) & mask;
+            while (s.values.get(i) != null) {
+                i = (i + 1) & mask;
+            }
+            s.keys[i] = key;
+            s.values.set(i, performance);
+        }
+
+        private static int hash(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+        }
+    }
+
+    private final int rows;
+    private final int seatsPerRow;
+    private final long bucketSeconds;
+
+    private final Map<String, Integer> showIds = new ConcurrentHashMap<>();
+    private final AtomicInteger lastShowId = new AtomicInteger();
+    private final PerformanceTable performances = new PerformanceTable();
+
+    public SeatInventory(int rows, int seatsPerRow) {
+        this(rows, seatsPerRow, Duration.ofMinutes(1));
+    }
+
+    /*
+     * Creates an inventory for a venue of rows rows (at most 26, A to Z)
+     * of seatsPerRow seats, where performances starting within the same
+     * bucket of time are the same performance.
+     */
+    public SeatInventory(int rows, int seatsPerRow, Duration bucket) {
+        if (rows <= 0 || rows > MAX_ROWS || seatsPerRow <= 0 || seatsPerRow > MAX_SEATS_PER_ROW) {
+            throw new IllegalArgumentException("Unsupported venue of " + rows + " x " + seatsPerRow + " seats");
+        }
+        if (bucket.getSeconds() <= 0) {
+            throw new IllegalArgumentException("The bucket must be at least a second: " + bucket);
+        }
+        this.rows = rows;
+        this.seatsPerRow = seatsPerRow;
+        this.bucketSeconds = bucket.getSeconds();
+    }
+
+    /*
+     * Packs a seat name such as "A11" into a short.
+     */
+    public static short packSeat(String seat) {
+        if (seat.length() < 2) {
+            throw new IllegalArgumentException("Not a seat: " + seat);
+        }
+        int row = seat.charAt(0) - 'A';
+        int number = 0;
+        for (int i = 1; i < seat.length(); i++) {
+            int digit = seat.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || number > MAX_SEATS_PER_ROW) {
+                throw new IllegalArgumentException("Not a seat: " + seat);
+            }
+            number = number * 10 + digit;
+        }
+        if (row < 0 || row >= MAX_ROWS || number <= 0 || number > MAX_SEATS_PER_ROW) {
+            throw new IllegalArgumentException("Not a seat: " + seat);
+        }
+        return (short) (row << SEAT_NUMBER_BITS | number);
+    }
+
+    /*
+     * Returns the name of a packed seat, such as "A11".
+     */
+    public static String seatName(short seat) {
+        return (char) ('A' + (seat >>> SEAT_NUMBER_BITS)) + Integer.toString(seat & MAX_SEATS_PER_ROW);
+    }
+
+    /*
+     * Adds ticket to the index, taking its seat.
+     *
+     * Throws IllegalStateException if the seat is already taken by another
+     * ticket.
+     */
+    public void add(Ticket ticket) {
+        Performance performance = performance(ticket.showName, ticket.date, true);
+        int index = indexOf(packSeat(ticket.seat));
+        synchronized (performance) {
+            Ticket holder = performance.tickets.get(index);
+            if (holder != null && holder != ticket) {
+                throw new IllegalStateException("Seat " + ticket.seat + " is already taken by ticket " + holder.id);
+            }
+            if (holder == null) {
+                performance.tickets.set(index, ticket);
+                performance.taken++;
+            }
+        }
+    }
+
+    /*
+     * Removes ticket from the index, freeing its seat.
+     */
+    public void remove(Ticket ticket) {
+        Performance performance = performance(ticket.showName, ticket.date, false);
+        if (performance == null) {
+            return;
+        }
+        int index = indexOf(packSeat(ticket.seat));
+        synchronized (performance) {
+            if (performance.tickets.get(index) == ticket) {
+                performance.tickets.set(index, null);
+                performance.taken--;
+            }
+        }
+    }
+
+    public boolean isFree(String show, LocalDateTime date, short seat) {
+        return getTicket(show, date, seat) == null;
+    }
+
+    /*
+     * Returns the ticket for seat at the given performance, or null if the
+     * seat is free.
+     */
+    public Ticket getTicket(String show, LocalDateTime date, short seat) {
+        Performance performance = performance(show, date, false);
+        if (performance == null) {
+            return null;
+        }
+        return performance.tickets.get(indexOf(seat));
+    }
+
+    /*
+     * Returns the owner of seat at the given performance, or null if the
+     * seat is free or its ticket has no owner.
+     */
+    public String getOwner(String show, LocalDateTime date, short seat) {
+        Ticket ticket = getTicket(show, date, seat);
+        return ticket == null ? null : ticket.getOwner();
+    }
+
+    /*
+     * Returns every ticket for the given performance, by seat.
+     */
+    public List<Ticket> getTickets(String show, LocalDateTime date) {
+        List<Ticket> result = new ArrayList<>();
+        Performance performance = performance(show, date, false);
+        if (performance == null) {
+            return result;
+        }
+        synchronized (performance) {
+            for (int i = 0; i < performance.tickets.length(); i++) {
+                Ticket ticket = performance.tickets.get(i);
+                if (ticket != null) {
+                    result.add(ticket);
+                }
+            }
+        }
+        return result;
+    }
+
+    public int countFree(String show, LocalDateTime date) {
+        Performance performance = performance(show, date, false);
+        if (performance == null) {
+            return rows * seatsPerRow;
+        }
+        return rows * seatsPerRow - performance.taken;
+    }
+
+    /*
+     * Finds the first count free seats side by side in one row, front row
+     * first, and issues a ticket for each to owner. Returns the tickets,
+     * or an empty list if no row has count free seats together.
+     */
+    public List<Ticket> allocate(String show, LocalDateTime date, int count, String owner) {
+        if (count <= 0 || count > seatsPerRow) {
+            throw new IllegalArgumentException("Can't seat " + count + " together in rows of " + seatsPerRow);
+        }
+        Performance performance = performance(show, date, true);
+        List<Ticket> allocated = new ArrayList<>(count);
+
+        synchronized (performance) {
+            for (int row = 0; row < rows; row++) {
+                // Count free seats in a run, starting over at each taken one.
+                int run = 0;
+                for (int i = row * seatsPerRow; i < (row + 1) * seatsPerRow; i++) {
+                    run = performance.tickets.get(i) == null ? run + 1 : 0;
+                    if (run == count) {
+                        for (int j = i - count + 1; j <= i; j++) {
+                            String seat = seatName(seatAt(j));
+                            Ticket ticket = new Ticket(show + " " + date + " " + seat, show, date, seat);
+                            ticket.setOwner(owner);
+                            performance.tickets.set(j, ticket);
+                            allocated.add(ticket);
+                        }
+                        performance.taken += count;
+                        return allocated;
+                    }
+                }
+            }
+        }
+        return allocated;
+    }
+
+    private Performance performance(String show, LocalDateTime date, boolean create) {
+        Integer showId = showIds.get(show);
+        if (showId == null) {
+            if (!create) {
+                return null;
+            }
+            showId = showIds.computeIfAbsent(show, s -> lastShowId.incrementAndGet());
+        }
+        long bucket = Math.floorDiv(date.toEpochSecond(ZoneOffset.UTC), bucketSeconds);
+        long key = (long) showId << 40 | (bucket & ((1L << 40) - 1));
+        return create ? performances.getOrCreate(key, rows * seatsPerRow) : performances.get(key);
+    }
+
+    private int indexOf(short seat) {
+        int row = seat >>> SEAT_NUMBER_BITS;
+        int number = seat & MAX_SEATS_PER_ROW;
+        if (row >= rows || number < 1 || number > seatsPerRow) {
+            throw new IllegalArgumentException("Seat " + seatName(seat) + " is not in this venue.");
+        }
+        return row * seatsPerRow + number - 1;
+    }
+
+    private short seatAt(int index) {
+        return (short) ((index / seatsPerRow) << SEAT_NUMBER_BITS | (index % seatsPerRow + 1));
+    }
+}
@@ -30,7 +30,7 @@ public class Ticket {
     }
 
     public String toString() {
-        return "Ticket owned by " + owner + " for " + showName;
+        return TicketFormat.appendTicket(this, new StringBuilder(64)).toString();
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package design_patterns.structural.adapter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TicketExchange {
+
+    /*
+     * A box office where tickets are traded from many threads at once.
+     *
+     * Listing a Ticket on the exchange gives back an ExchangeTicket, which
+     * is still a Ticket and a Tradable, but whose trades are atomic (see
+     * ExchangeTicket). The exchange also moves several tickets from one
+     * owner to another as a single step: either all of them change hands
+     * or none do.
+     *
+     * The exchange interns owner names in a table of its own, so they take
+     * memory for as long as the exchange is in use, and no longer.
+     */
+
+    private final OwnerTable owners;
+    private final Map<String, ExchangeTicket> tickets = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public TicketExchange() {
+        this(new OwnerTable());
+    }
+
+    TicketExchange(OwnerTable owners) {
+        this.owners = owners;
+    }
+
+    /*
+     * Lists ticket on the exchange, with its current owner, and returns the
+     * exchange's copy of it. Listing a ticket whose id is already listed
+     * returns the ticket listed before.
+     */
+    public ExchangeTicket list(Ticket ticket) {
+        return tickets.computeIfAbsent(ticket.id, id -> new ExchangeTicket(id, ticket.showName, ticket.date,
+                ticket.seat, ticket.getOwner(), owners, sequence.incrementAndGet()));
+    }
+
+    /*
+     * Returns the listed ticket with the given id, or null if there is none.
+     */
+    public ExchangeTicket get(String id) {
+        return tickets.get(id);
+    }
+
+    public int size() {
+        return tickets.size();
+    }
+
+    /*
+     * Trades ticket to newOwner only if it is owned by expectedOwner, and
+     * returns whether it was traded.
+     */
+    public boolean compareAndTrade(ExchangeTicket ticket, String expectedOwner, String newOwner) {
+        return ticket.compareAndTrade(expectedOwner, newOwner);
+    }
+
+    /*
+     * Trades every ticket in batch from fromOwner to toOwner, recording a
+     * trade for each, if all of them are owned by fromOwner. Returns false,
+     * and changes nothing, if any of them is not.
+     *
+     * The tickets are reserved in the order they were listed, so two
+     * transfers of overlapping batches can't wait for each other forever.
+     * Other trades of these tickets wait until the transfer is done. Every
+     * check is made while reserving, so once all the tickets are reserved
+     * the trades can't fail part way.
+     *
+     * Throws IllegalArgumentException, before reserving anything, if a
+     * ticket is in the batch twice or was not listed on this exchange.
+     */
+    public boolean transfer(Collection<ExchangeTicket> batch, String fromOwner, String toOwner) {
+        List<ExchangeTicket> ordered = new ArrayList<>(batch);
+        for (ExchangeTicket ticket : ordered) {
+            if (!ticket.usesOwners(owners)) {
+                throw new IllegalArgumentException("Ticket " + ticket.id + " is not listed on this exchange.");
+            }
+        }
+        ordered.sort(Comparator.comparingLong(ExchangeTicket::getSequence));
+        for (int i = 1; i < ordered.size(); i++) {
+            if (ordered.get(i) == ordered.get(i - 1)) {
+                throw new IllegalArgumentException("Ticket " + ordered.get(i).id + " is in the batch twice.");
+            }
+        }
+
+        int from = owners.intern(fromOwner);
+        int to = owners.intern(toOwner);
+        int reserved = 0;
+        try {
+            for (ExchangeTicket ticket : ordered) {
+                ticket.reserve();
+                reserved++;
+                if (ticket.ownerId() != from) {
+                    return false;
+                }
+            }
+            for (ExchangeTicket ticket : ordered) {
+                ticket.tradeReserved(from, to);
+            }
+            return true;
+        } finally {
+            for (int i = reserved - 1; i >= 0; i--) {
+                ordered.get(i).release();
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package design_patterns.structural.adapter;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TicketFormat {
+
+    /*
+     * Writes descriptions of tickets and trades into a buffer the caller
+     * supplies and reuses, instead of building new Strings:
+     *
+     *   ticket: "Ticket owned by <owner> for <show>"
+     *   trade:  "(<previous owner>, <new owner>)"
+     *
+     * Writing to a StringBuilder or a CharBuffer allocates nothing. Writing
+     * to a ByteBuffer encodes to UTF-8; the fixed text is encoded once, and
+     * show names, seats and owners are encoded the first time they are
+     * written and then reused, up to MAX_CACHED distinct names. A buffer too
+     * small for the text throws BufferOverflowException, as the buffer's
+     * own put methods do.
+     */
+
+    private static final int MAX_CACHED = 4096;
+
+    private static final String OWNED_BY = "Ticket owned by ";
+    private static final String FOR = " for ";
+    private static final String SEAT = " seat ";
+
+    private static final byte[] OWNED_BY_BYTES = OWNED_BY.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FOR_BYTES = FOR.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SEAT_BYTES = SEAT.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NULL_BYTES = "null".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SEPARATOR_BYTES = ", ".getBytes(StandardCharsets.UTF_8);
+
+    private static final Map<String, byte[]> encoded = new ConcurrentHashMap<>();
+
+    private TicketFormat() {
+    }
+
+    public static StringBuilder appendTicket(Ticket ticket, StringBuilder out) {
+        return out.append(OWNED_BY).append(ticket.getOwner()).append(FOR).append(ticket.showName);
+    }
+
+    public static CharBuffer appendTicket(Ticket ticket, CharBuffer out) {
+        return put(put(out.put(OWNED_BY), ticket.getOwner()).put(FOR), ticket.showName);
+    }
+
+    public static ByteBuffer appendTicket(Ticket ticket, ByteBuffer out) {
+        return out.put(OWNED_BY_BYTES).put(encode(ticket.getOwner())).put(FOR_BYTES).put(encode(ticket.showName));
+    }
+
+    /*
+     * Writes the ticket followed by " seat <seat>", for audit logs that
+     * need to tell tickets for the same show apart.
+     */
+    public static StringBuilder appendTicketAndSeat(Ticket ticket, StringBuilder out) {
+        return appendTicket(ticket, out).append(SEAT).append(ticket.seat);
+    }
+
+    public static CharBuffer appendTicketAndSeat(Ticket ticket, CharBuffer out) {
+        return put(appendTicket(ticket, out).put(SEAT), ticket.seat);
+    }
+
+    public static ByteBuffer appendTicketAndSeat(Ticket ticket, ByteBuffer out) {
+        return appendTicket(ticket, out).put(SEAT_BYTES).put(encode(ticket.seat));
+    }
+
+    public static StringBuilder appendTrade(String previousOwner, String newOwner, StringBuilder out) {
+        return out.append('(').append(previousOwner).append(", ").append(newOwner).append(')');
+    }
+
+    public static CharBuffer appendTrade(String previousOwner, String newOwner, CharBuffer out) {
+        return put(put(out.put('('), previousOwner).put(", "), newOwner).put(')');
+    }
+
+    public static ByteBuffer appendTrade(String previousOwner, String newOwner, ByteBuffer out) {
+        return out.put((byte) '(').put(encode(previousOwner)).put(SEPARATOR_BYTES).put(encode(newOwner)).put((byte) ')');
+    }
+
+    private static CharBuffer put(CharBuffer out, String text) {
+        return out.put(text == null ? "null" : text);
+    }
+
+    /*
+     * Returns text in UTF-8, from the cache if it has been encoded before.
+     */
+    private static byte[] encode(String text) {
+        if (text == null) {
+            return NULL_BYTES;
+        }
+        byte[] bytes = encoded.get(text);
+        if (bytes == null) {
+            bytes = text.getBytes(StandardCharsets.UTF_8);
+            if (encoded.size() < MAX_CACHED) {
+                encoded.putIfAbsent(text, bytes);
+            }
+        }
+        return bytes;
+    }
+}
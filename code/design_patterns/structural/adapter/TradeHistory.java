@@ -0,0 +1,291 @@
+package design_patterns.structural.adapter;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class TradeHistory implements Iterable<String>, Closeable {
+
+    /*
+     * The trades of one ticket, oldest first.
+     *
+     * Each trade is kept as its two owners in parallel arrays, rather than
+     * as a formatted string, so recording a trade and undoing the last one
+     * take constant time and, once the arrays have grown to fit, allocate
+     * nothing. The arrays hold the owner Strings the trades were recorded
+     * with, which take no more room than ids would and need no table to
+     * look them up in. They are only allocated by the first trade, so a
+     * ticket that is never traded pays for nothing but the history itself.
+     * Owner names may contain any characters, commas included, and a trade
+     * from no owner undoes back to no owner.
+     *
+     * The "(previous, new)" strings are only built when the history is
+     * read through asStrings().
+     *
+     * Under a spilling HistoryPolicy the arrays are a ring buffer of the
+     * latest trades. When it is full, its older half is written to a spill
+     * file in one go, so recording stays constant time on average. Undoing
+     * a trade still in memory is as fast as before; undoing one that was
+     * spilled reads it back from the end of the file. Iterating reads the
+     * spill file a chunk at a time as it goes, and reading a spilled trade
+     * by its index reads just that trade.
+     */
+
+    private static final String[] NO_TRADES = {};
+
+    private final int maxInMemory;
+    private final int maxSpilled;
+    private final TradeSpillFile spill;
+
+    // The trades in memory, oldest at head, in a ring buffer whose length
+    // is a power of two.
+    private String[] previousOwners = NO_TRADES;
+    private String[] newOwners = NO_TRADES;
+    private int head = 0;
+    private int inMemory = 0;
+
+    public TradeHistory() {
+        this(HistoryPolicy.unbounded(), null);
+    }
+
+    /*
+     * Creates a history kept according to policy. The history spills to a
+     * new file of its own in the policy's spill directory, whose name
+     * starts with "trades-" and name, and deletes it on close().
+     */
+    public TradeHistory(HistoryPolicy policy, String name) {
+        this.maxInMemory = policy.getMaxInMemory();
+        this.maxSpilled = policy.getMaxSpilled();
+        this.spill = policy.getSpillDirectory() == null ? null
+                : new TradeSpillFile(policy.getSpillDirectory(), name);
+    }
+
+    /*
+     * Records a trade of the ticket from previousOwner to newOwner.
+     */
+    public void record(String previousOwner, String newOwner) {
+        if (inMemory == maxInMemory) {
+            spillOldest();
+        }
+        if (inMemory == previousOwners.length) {
+            grow();
+        }
+        int slot = (head + inMemory) & (previousOwners.length - 1);
+        previousOwners[slot] = previousOwner;
+        newOwners[slot] = newOwner;
+        inMemory++;
+    }
+
+    /*
+     * Records a trade given in the form "(previous, new)", as asStrings()
+     * returns it. The previous owner ends at the first ", ", and "null"
+     * stands for no owner.
+     *
+     * Throws IllegalArgumentException if trade is not in that form.
+     */
+    public void record(String trade) {
+        int separator = trade.indexOf(", ");
+        if (!trade.startsWith("(") || !trade.endsWith(")") || separator < 0) {
+            throw new IllegalArgumentException("Not a trade: " + trade);
+        }
+        String previousOwner = trade.substring(1, separator);
+        String newOwner = trade.substring(separator + 2, trade.length() - 1);
+        record(previousOwner.equals("null") ? null : previousOwner, newOwner.equals("null") ? null : newOwner);
+    }
+
+    /*
+     * Forgets the last trade and returns the owner from before it.
+     *
+     * Throws IllegalStateException if there are no trades.
+     */
+    public String undo() {
+        if (inMemory > 0) {
+            inMemory--;
+            int slot = slotOf(inMemory);
+            String previousOwner = previousOwners[slot];
+            previousOwners[slot] = null;
+            newOwners[slot] = null;
+            return previousOwner;
+        }
+        if (spill != null && spill.size() > 0) {
+            return spill.removeLast()[0];
+        }
+        throw new IllegalStateException("There is no trade to undo.");
+    }
+
+    public int size() {
+        return spilled() + inMemory;
+    }
+
+    public String getPreviousOwner(int trade) {
+        checkIndex(trade);
+        if (trade < spilled()) {
+            return spill.get(trade)[0];
+        }
+        return previousOwners[slotOf(trade - spilled())];
+    }
+
+    public String getNewOwner(int trade) {
+        checkIndex(trade);
+        if (trade < spilled()) {
+            return spill.get(trade)[1];
+        }
+        return newOwners[slotOf(trade - spilled())];
+    }
+
+    /*
+     * Appends the trade in the form "(previous, new)".
+     */
+    public StringBuilder appendTo(int trade, StringBuilder out) {
+        if (trade >= 0 && trade < spilled()) {
+            String[] owners = spill.get(trade);
+            return TicketFormat.appendTrade(owners[0], owners[1], out);
+        }
+        return TicketFormat.appendTrade(getPreviousOwner(trade), getNewOwner(trade), out);
+    }
+
+    /*
+     * Writes the trade in the form "(previous, new)" as UTF-8.
+     */
+    public ByteBuffer appendTo(int trade, ByteBuffer out) {
+        if (trade >= 0 && trade < spilled()) {
+            String[] owners = spill.get(trade);
+            return TicketFormat.appendTrade(owners[0], owners[1], out);
+        }
+        return TicketFormat.appendTrade(getPreviousOwner(trade), getNewOwner(trade), out);
+    }
+
+    /*
+     * Returns an iterator over every trade as a "(previous, new)" string,
+     * oldest first, that reads spilled trades from disk as it goes. The
+     * history must not change while it is in use.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        Iterator<String[]> spilled = spill == null ? null : spill.iterator();
+        int spilledCount = spilled();
+        int total = size();
+        return new Iterator<String>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < total;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                StringBuilder out = new StringBuilder();
+                if (next < spilledCount) {
+                    String[] trade = spilled.next();
+                    TicketFormat.appendTrade(trade[0], trade[1], out);
+                } else {
+                    int slot = slotOf(next - spilledCount);
+                    TicketFormat.appendTrade(previousOwners[slot], newOwners[slot], out);
+                }
+                next++;
+                return out.toString();
+            }
+        };
+    }
+
+    /*
+     * Returns a read-only view of the trades as "(previous, new)" strings.
+     * Each string is built when it is read, and the view follows later
+     * trades and undos.
+     */
+    public List<String> asStrings() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return appendTo(index, new StringBuilder()).toString();
+            }
+
+            @Override
+            public int size() {
+                return TradeHistory.this.size();
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                return TradeHistory.this.iterator();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return asStrings().toString();
+    }
+
+    /*
+     * Deletes the spill file, if there is one. The history must not be
+     * used afterwards. Closing a closed history does nothing.
+     */
+    @Override
+    public void close() {
+        if (spill != null) {
+            spill.close();
+        }
+    }
+
+    private int spilled() {
+        return spill == null ? 0 : spill.size();
+    }
+
+    private int slotOf(int inMemoryIndex) {
+        return (head + inMemoryIndex) & (previousOwners.length - 1);
+    }
+
+    /*
+     * Moves the older half of the trades in memory to the spill file, and
+     * compacts the spill file if it has grown too long.
+     */
+    private void spillOldest() {
+        if (spill == null) {
+            throw new IllegalStateException("The history is full and has nowhere to spill.");
+        }
+        int batch = Math.max(1, inMemory / 2);
+        String[] previous = new String[batch];
+        String[] next = new String[batch];
+        for (int i = 0; i < batch; i++) {
+            int slot = slotOf(i);
+            previous[i] = previousOwners[slot];
+            next[i] = newOwners[slot];
+            previousOwners[slot] = null;
+            newOwners[slot] = null;
+        }
+        spill.append(previous, next, batch);
+        head = (head + batch) & (previousOwners.length - 1);
+        inMemory -= batch;
+
+        if (spill.size() > maxSpilled) {
+            spill.compact(spill.size() - maxSpilled / 2);
+        }
+    }
+
+    private void grow() {
+        int length = Math.max(8, previousOwners.length * 2);
+        String[] previous = new String[length];
+        String[] next = new String[length];
+        for (int i = 0; i < inMemory; i++) {
+            previous[i] = previousOwners[slotOf(i)];
+            next[i] = newOwners[slotOf(i)];
+        }
+        previousOwners = previous;
+        newOwners = next;
+        head = 0;
+    }
+
+    private void checkIndex(int trade) {
+        if (trade < 0 || trade >= size()) {
+            throw new IndexOutOfBoundsException("Trade " + trade + " of " + size());
+        }
+    }
+}
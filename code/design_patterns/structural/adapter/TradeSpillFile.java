@@ -0,0 +1,380 @@
+package design_patterns.structural.adapter;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+class TradeSpillFile implements Closeable {
+
+    /*
+     * An append-only file of the oldest trades of one TradeHistory.
+     *
+     * Each trade is stored as
+     *
+     *   short  length of the previous owner in bytes, or -1 for no owner
+     *   byte[] previous owner in UTF-8
+     *   short  length of the new owner in bytes, or -1 for no owner
+     *   byte[] new owner in UTF-8
+     *   int    length of this record in bytes, including this field
+     *
+     * The length at the end lets the file be checked by hand; the offset
+     * of every trade is also kept in memory, eight bytes a trade, so any
+     * trade can be read back with one positioned read and the last one cut
+     * off when it is undone. Compaction bounds how many there are.
+     *
+     * Each spill file is created afresh under a name of its own, so two
+     * histories never share one, even for the same ticket. One channel
+     * stays open on it until close(), which closes the channel and deletes
+     * the file. A spill file that is never closed is closed and deleted by
+     * a Cleaner once it is unreachable. Iterators read through the same
+     * channel in chunks of at most CHUNK_BYTES, so they hold nothing open
+     * of their own.
+     */
+
+    private static final int CHUNK_BYTES = 1 << 16;
+    private static final int CHUNK_TRADES = 1024;
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /*
+     * The file and the channel open on it, kept apart from the spill file
+     * so the Cleaner can close and delete them without keeping it alive.
+     */
+    private static final class Resources implements Runnable {
+        final Path path;
+        FileChannel channel;
+
+        Resources(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException ignored) {
+                // The file is deleted anyway.
+            }
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+                // Nothing more can be done about it.
+            }
+        }
+    }
+
+    private final Path path;
+    private final Resources resources;
+    private final Cleaner.Cleanable cleanable;
+    private long[] offsets = new long[16];
+    private int count = 0;
+    private long end = 0;
+
+    /*
+     * Creates an empty spill file in directory whose name starts with
+     * "trades-" and name.
+     */
+    TradeSpillFile(Path directory, String name) {
+        try {
+            Files.createDirectories(directory);
+            this.path = Files.createTempFile(directory, "trades-" + fileNameOf(name) + "-", ".log");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.resources = new Resources(path);
+        this.cleanable = CLEANER.register(this, resources);
+        try {
+            resources.channel = open(path);
+        } catch (IOException e) {
+            cleanable.clean();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    /*
+     * Appends the first trades pairs of owners in one write.
+     */
+    void append(String[] previousOwners, String[] newOwners, int trades) {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * trades);
+        long[] appended = new long[trades];
+        for (int i = 0; i < trades; i++) {
+            appended[i] = end + buffer.position();
+            buffer = put(buffer, previousOwners[i], newOwners[i]);
+        }
+        buffer.flip();
+        try {
+            FileChannel channel = resources.channel;
+            while (buffer.hasRemaining()) {
+                end += channel.write(buffer, end);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (count + trades > offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(offsets.length * 2, count + trades));
+        }
+        System.arraycopy(appended, 0, offsets, count, trades);
+        count += trades;
+    }
+
+    /*
+     * Returns the two owners of a spilled trade, oldest first.
+     */
+    String[] get(int trade) {
+        return read(trade, 1)[0];
+    }
+
+    /*
+     * Removes the newest spilled trade and returns its two owners.
+     */
+    String[] removeLast() {
+        if (count == 0) {
+            throw new IllegalStateException("The spill file is empty.");
+        }
+        String[] owners = get(count - 1);
+        try {
+            resources.channel.truncate(offsets[count - 1]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        end = offsets[--count];
+        return owners;
+    }
+
+    /*
+     * Replaces the oldest trades trades with one trade from the previous
+     * owner of the first of them to the new owner of the last.
+     */
+    void compact(int trades) {
+        if (trades < 2) {
+            return;
+        }
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        long[] compacted = new long[offsets.length];
+        int written = 0;
+        long position = 0;
+        boolean writtenOut = false;
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            String first = null;
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BYTES);
+            for (int i = 0; i < count; ) {
+                for (String[] trade : read(i, CHUNK_TRADES)) {
+                    String previousOwner = trade[0];
+                    if (i == 0) {
+                        first = previousOwner;
+                    }
+                    if (i++ < trades - 1) {
+                        continue;
+                    }
+                    if (i == trades) {
+                        previousOwner = first;
+                    }
+                    compacted[written++] = position + buffer.position();
+                    buffer = put(buffer, previousOwner, trade[1]);
+                    if (buffer.position() > CHUNK_BYTES / 2) {
+                        buffer.flip();
+                        position += drain(out, buffer);
+                        buffer.clear();
+                    }
+                }
+            }
+            buffer.flip();
+            position += drain(out, buffer);
+            writtenOut = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (!writtenOut) {
+                deleteQuietly(temporary);
+            }
+        }
+
+        // Some platforms can't replace a file that is open, so the channel
+        // is closed around the move and then opened on whichever file is
+        // in place.
+        try {
+            resources.channel.close();
+            try {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                deleteQuietly(temporary);
+                throw e;
+            } finally {
+                resources.channel = open(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        offsets = compacted;
+        count = written;
+        end = position;
+    }
+
+    /*
+     * Returns an iterator over the spilled trades, oldest first, as pairs
+     * of owners. The file is read a chunk at a time as the iterator
+     * advances.
+     */
+    Iterator<String[]> iterator() {
+        return new Iterator<String[]>() {
+            private final int last = count;
+            private String[][] chunk = new String[0][];
+            private int chunkStart = 0;
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < last;
+            }
+
+            @Override
+            public String[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (next - chunkStart == chunk.length) {
+                    chunkStart = next;
+                    chunk = read(next, Math.min(CHUNK_TRADES, last - next));
+                }
+                return chunk[next++ - chunkStart];
+            }
+        };
+    }
+
+    /*
+     * Reads up to max trades starting at first, fewer if they would take
+     * more than CHUNK_BYTES, but always at least one.
+     */
+    private String[][] read(int first, int max) {
+        int last = Math.min(count, first + max);
+        while (last > first + 1 && offsetOf(last) - offsets[first] > CHUNK_BYTES) {
+            last--;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) (offsetOf(last) - offsets[first]));
+        try {
+            readFully(resources.channel, buffer, offsets[first]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.flip();
+
+        String[][] trades = new String[last - first][];
+        for (int i = 0; i < trades.length; i++) {
+            trades[i] = new String[] {get(buffer), get(buffer)};
+            buffer.getInt();
+        }
+        return trades;
+    }
+
+    /*
+     * Closes the file and deletes it. Closing a closed spill file does
+     * nothing.
+     */
+    @Override
+    public void close() {
+        cleanable.clean();
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // It is only a leftover temporary file.
+        }
+    }
+
+    private long offsetOf(int trade) {
+        return trade == count ? end : offsets[trade];
+    }
+
+    /*
+     * Keeps the letters, digits, dots, dashes and underscores of name, so
+     * it can be used in a file name.
+     */
+    private static String fileNameOf(String name) {
+        StringBuilder out = new StringBuilder();
+        for (char c : String.valueOf(name).toCharArray()) {
+            boolean plain = c < 128 && (Character.isLetterOrDigit(c) || c == '.' || c == '-' || c == '_');
+            out.append(plain ? c : '_');
+        }
+        return out.toString();
+    }
+
+    private static ByteBuffer put(ByteBuffer buffer, String previousOwner, String newOwner) {
+        byte[] previous = previousOwner == null ? null : previousOwner.getBytes(StandardCharsets.UTF_8);
+        byte[] next = newOwner == null ? null : newOwner.getBytes(StandardCharsets.UTF_8);
+        int length = 2 + lengthOf(previous) + 2 + lengthOf(next) + 4;
+        if (buffer.remaining() < length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+            buffer.flip();
+            buffer = larger.put(buffer);
+        }
+        putOwner(buffer, previous);
+        putOwner(buffer, next);
+        return buffer.putInt(length);
+    }
+
+    private static void putOwner(ByteBuffer buffer, byte[] owner) {
+        if (owner == null) {
+            buffer.putShort((short) -1);
+        } else {
+            if (owner.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Owner name too long: " + owner.length + " bytes");
+            }
+            buffer.putShort((short) owner.length).put(owner);
+        }
+    }
+
+    private static int lengthOf(byte[] owner) {
+        return owner == null ? 0 : owner.length;
+    }
+
+    private static String get(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static long drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        return written;
+    }
+}
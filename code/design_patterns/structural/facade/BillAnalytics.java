@@ -0,0 +1,231 @@
+package design_patterns.structural.facade;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+public class BillAnalytics {
+
+    /*
+     * An in-memory store of issued bills for end-of-day reports.
+     *
+     * Order lines are kept column by column in primitive arrays (bill id,
+     * item id, quantity, price in cents, hour of day, bill size) rather than
+     * as objects, so a report scans a few tightly packed arrays. Reports
+     * split the rows into chunks, sum each chunk in parallel, and add up
+     * the partial sums.
+     *
+     * Bills can be recorded and reports run from many threads at once. A
+     * report sees every bill recorded before it started.
+     */
+
+    private static final int CHUNK_ROWS = 1 << 16;
+
+    private final ZoneId zone;
+
+    // Guarded by this. The arrays are replaced by larger copies as they
+    // fill; rows below rowCount are never changed once written.
+    private int rowCount = 0;
+    private int[] billIds = new int[1024];
+    private int[] itemIds = new int[1024];
+    private int[] quantities = new int[1024];
+    private long[] priceCents = new long[1024];
+    private byte[] hours = new byte[1024];
+    private int[] billSizes = new int[1024];
+
+    private final Map<String, Integer> itemIdsByName = new LinkedHashMap<>();
+    private String[] itemNames = new String[64];
+
+    private final LatencyHistogram queryLatency = new LatencyHistogram();
+
+    public BillAnalytics() {
+        this(ZoneId.systemDefault());
+    }
+
+    /*
+     * Creates a store that reports hours in the given time zone.
+     */
+    public BillAnalytics(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    /*
+     * Records every order line of bill as issued now.
+     */
+    public void record(Bill bill) {
+        record(bill, Instant.now());
+    }
+
+    /*
+     * Records every order line of bill as issued at issuedAt.
+     */
+    public synchronized void record(Bill bill, Instant issuedAt) {
+        int lines = bill.getOrderItems().size();
+        ensureCapacity(rowCount + lines);
+        byte hour = (byte) issuedAt.atZone(zone).getHour();
+
+        for (OrderItem line : bill.getOrderItems()) {
+            billIds[rowCount] = bill.getID();
+            itemIds[rowCount] = itemId(line.getItem().getName());
+            quantities[rowCount] = line.getQuantity();
+            priceCents[rowCount] = BillCalculator.toCents(line.getItem().getPrice());
+            hours[rowCount] = hour;
+            billSizes[rowCount] = lines;
+            rowCount++;
+        }
+    }
+
+    public synchronized int getLineCount() {
+        return rowCount;
+    }
+
+    /*
+     * Returns the revenue in cents of each food item, by name.
+     */
+    public Map<String, Long> revenueByItem() {
+        Snapshot s = snapshot();
+        long[] sums = sumBy(s, s.itemNames.length, row -> s.itemIds[row],
+                row -> s.priceCents[row] * s.quantities[row]);
+        return byItemName(s, sums);
+    }
+
+    /*
+     * Returns the number sold of each food item, by name.
+     */
+    public Map<String, Long> quantityByItem() {
+        Snapshot s = snapshot();
+        long[] sums = sumBy(s, s.itemNames.length, row -> s.itemIds[row], row -> s.quantities[row]);
+        return byItemName(s, sums);
+    }
+
+    /*
+     * Returns the revenue in cents for each hour of the day; index 0 is
+     * midnight to 1 a.m.
+     */
+    public long[] revenueByHour() {
+        Snapshot s = snapshot();
+        return sumBy(s, 24, row -> s.hours[row], row -> s.priceCents[row] * s.quantities[row]);
+    }
+
+    /*
+     * Returns the revenue in cents by bill size: index n holds the revenue
+     * of all bills with n order lines.
+     */
+    public long[] revenueByBillSize() {
+        Snapshot s = snapshot();
+        int maxSize = 0;
+        for (int row = 0; row < s.rows; row++) {
+            maxSize = Math.max(maxSize, s.billSizes[row]);
+        }
+        return sumBy(s, maxSize + 1, row -> s.billSizes[row], row -> s.priceCents[row] * s.quantities[row]);
+    }
+
+    /*
+     * Returns the latency of the reports run so far.
+     */
+    public LatencyHistogram getQueryLatency() {
+        return queryLatency;
+    }
+
+    /*
+     * Sums value(row) into groups chosen by group(row), in parallel.
+     */
+    private long[] sumBy(Snapshot s, int groups, IntUnaryOperator group, IntToLongFunction value) {
+        long start = System.nanoTime();
+        long[] sums = IntStream.range(0, chunkCount(s))
+                .parallel()
+                .mapToObj(chunk -> {
+                    long[] partial = new long[groups];
+                    for (int row = chunk * CHUNK_ROWS, end = chunkEnd(s, chunk); row < end; row++) {
+                        partial[group.applyAsInt(row)] += value.applyAsLong(row);
+                    }
+                    return partial;
+                })
+                .reduce(new long[groups], BillAnalytics::add);
+        queryLatency.record(System.nanoTime() - start);
+        return sums;
+    }
+
+    private static Map<String, Long> byItemName(Snapshot s, long[] sums) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int id = 0; id < s.itemCount; id++) {
+            result.put(s.itemNames[id], sums[id]);
+        }
+        return result;
+    }
+
+    private static long[] add(long[] a, long[] b) {
+        long[] sum = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            sum[i] = a[i] + b[i];
+        }
+        return sum;
+    }
+
+    private static int chunkCount(Snapshot s) {
+        return (s.rows + CHUNK_ROWS - 1) / CHUNK_ROWS;
+    }
+
+    private static int chunkEnd(Snapshot s, int chunk) {
+        return Math.min(s.rows, (chunk + 1) * CHUNK_ROWS);
+    }
+
+    /*
+     * The columns as they were at one moment. Reports read a snapshot
+     * without holding the lock.
+     */
+    private static class Snapshot {
+        int rows;
+        int[] itemIds;
+        int[] quantities;
+        long[] priceCents;
+        byte[] hours;
+        int[] billSizes;
+        int itemCount;
+        String[] itemNames;
+    }
+
+    private synchronized Snapshot snapshot() {
+        Snapshot s = new Snapshot();
+        s.rows = rowCount;
+        s.itemIds = itemIds;
+        s.quantities = quantities;
+        s.priceCents = priceCents;
+        s.hours = hours;
+        s.billSizes = billSizes;
+        s.itemCount = itemIdsByName.size();
+        s.itemNames = Arrays.copyOf(itemNames, Math.max(1, s.itemCount));
+        return s;
+    }
+
+    private int itemId(String name) {
+        Integer id = itemIdsByName.get(name);
+        if (id == null) {
+            id = itemIdsByName.size();
+            if (id == itemNames.length) {
+                itemNames = Arrays.copyOf(itemNames, id * 2);
+            }
+            itemNames[id] = name;
+            itemIdsByName.put(name, id);
+        }
+        return id;
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows <= billIds.length) {
+            return;
+        }
+        int capacity = Math.max(rows, billIds.length * 2);
+        billIds = Arrays.copyOf(billIds, capacity);
+        itemIds = Arrays.copyOf(itemIds, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        priceCents = Arrays.copyOf(priceCents, capacity);
+        hours = Arrays.copyOf(hours, capacity);
+        billSizes = Arrays.copyOf(billSizes, capacity);
+    }
+}
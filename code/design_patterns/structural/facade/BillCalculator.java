@@ -1,16 +1,79 @@
 package design_patterns.structural.facade;
 
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
 public class BillCalculator {
-    double tempTotal = 0;
+
+    /*
+     * This class is responsible for calculating the total of a bill.
+     *
+     * It keeps no state between bills other than its metrics, so one
+     * calculator can be reused for many bills and shared by many threads.
+     * Totals are summed exactly in whole cents rather than in floating
+     * point.
+     */
+
+    private final LongAdder bills;
+    private final LatencyHistogram latency;
+    private final MessageSink messages;
+
+    public BillCalculator() {
+        this(MetricsRegistry.NONE, MessageSink.DEFAULT);
+    }
+
+    /*
+     * Creates a calculator that counts and times its totals in metrics
+     * as calculator.bills and calculator.latency.
+     */
+    public BillCalculator(MetricsRegistry metrics, MessageSink messages) {
+        this.bills = metrics.counter("calculator.bills");
+        this.latency = metrics.histogram("calculator.latency");
+        this.messages = messages;
+    }
 
     public double calculateTotal(Bill bill) {
-        for (OrderItem f : bill.getOrderItems())
-            tempTotal += f.getItem().getPrice() * f.getQuantity();
+        long start = System.nanoTime();
+        double total = calculateTotalCents(bill) / 100.0;
+        latency.record(System.nanoTime() - start);
+        bills.increment();
 
+        messages.message("Message from Calculator: The total amount has been calculated.");
 
-        System.out.println("Message from Calculator: The total amount has been calculated.");
+        return total;
+    }
+
+    /*
+     * Returns the total of bill in cents. Each price is rounded to the
+     * nearest cent before it is multiplied by its quantity.
+     *
+     * Throws ArithmeticException if the total does not fit in a long;
+     * calculateExactTotal handles such bills.
+     */
+    public long calculateTotalCents(Bill bill) {
+        if (bill instanceof PackedBill)
+            return ((PackedBill) bill).calculateTotalCents();
+
+        long cents = 0;
+        for (OrderItem f : bill.getOrderItems())
+            cents = Math.addExact(cents, Math.multiplyExact(toCents(f.getItem().getPrice()), f.getQuantity()));
+        return cents;
+    }
+
+    /*
+     * Returns the total of bill as an exact decimal amount, for bills too
+     * large to be counted in a long number of cents.
+     */
+    public BigDecimal calculateExactTotal(Bill bill) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderItem f : bill.getOrderItems())
+            total = total.add(BigDecimal.valueOf(toCents(f.getItem().getPrice()))
+                    .multiply(BigDecimal.valueOf(f.getQuantity())));
+        return total.movePointLeft(2);
+    }
 
-        return tempTotal;
+    static long toCents(double price) {
+        return Math.round(price * 100);
     }
 
 }
@@ -0,0 +1,463 @@
+package design_patterns.structural.facade;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class BillJournal implements Closeable {
+
+    /*
+     * An append-only log of bills, in the same text format as BillLogger.
+     *
+     * Bills are appended to one long-lived FileChannel by a single writer
+     * thread. Bills that arrive while a write is in progress are collected
+     * and written together in the next write (group commit). The log rolls
+     * over to a new segment file, bill-log-000001.txt, bill-log-000002.txt,
+     * and so on, when a segment reaches its maximum size.
+     *
+     * With Format.CHECKSUMMED, bills are written as length-prefixed binary
+     * records, each with a CRC32C checksum, to segments named
+     * bill-log-000001.wal and so on (see ChecksummedBillRecords). When such
+     * a journal is opened, a half-written record left at the end of the
+     * newest segment by a crash is cut off before appending resumes.
+     * Together with the PER_BILL policy, no bill that append returned for
+     * is lost, while bills appended at the same time share one fsync.
+     */
+
+    /**
+     * When the journal forces its writes to disk.
+     */
+    public enum FsyncPolicy {
+        /**
+         * append returns only once the bill is on disk. Bills appended at
+         * the same time share one fsync.
+         */
+        PER_BILL,
+        /**
+         * The journal is forced every fsync interval; append returns once
+         * the bill is queued.
+         */
+        INTERVAL,
+        /**
+         * The journal is forced only when it is closed.
+         */
+        ON_CLOSE
+    }
+
+    /**
+     * How bills are written to the journal.
+     */
+    public enum Format {
+        /**
+         * The text format of BillLogger, with no framing.
+         */
+        TEXT,
+        /**
+         * Length-prefixed, checksummed binary records that can be recovered
+         * after a crash.
+         */
+        CHECKSUMMED
+    }
+
+    private static final String SEGMENT_FORMAT = "bill-log-%06d.txt";
+    private static final String SEGMENT_PREFIX = "bill-log-";
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final FsyncPolicy policy;
+    private final long fsyncIntervalNanos;
+    private final Format format;
+    private final long recoveredBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workToDo = lock.newCondition();
+    private final Condition progress = lock.newCondition();
+
+    // Guarded by lock.
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(1 << 16);
+    private long appended = 0;
+    private long written = 0;
+    private long synced = 0;
+    private boolean closed = false;
+    private boolean syncRequested = false;
+    private volatile IOException failure = null;
+
+    // Used only by the writer thread.
+    private ByteArrayOutputStream writing = new ByteArrayOutputStream(1 << 16);
+    private FileChannel channel;
+    private int segment;
+    private long lastSync = System.nanoTime();
+
+    private final Thread writer;
+
+    private final LongAdder billCount = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder writeCount = new LongAdder();
+    private final LongAdder syncCount = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /*
+     * Opens a journal in directory, appending to its newest segment if
+     * there is one.
+     *
+     * fsyncIntervalMillis is only used by the INTERVAL policy.
+     */
+    public BillJournal(Path directory, long maxSegmentBytes, FsyncPolicy policy, long fsyncIntervalMillis)
+            throws IOException {
+        this(directory, maxSegmentBytes, policy, fsyncIntervalMillis, Format.TEXT);
+    }
+
+    /*
+     * Opens a journal in directory that writes bills in the given format.
+     * A CHECKSUMMED journal first recovers its newest segment, which takes
+     * one read of that segment.
+     */
+    public BillJournal(Path directory, long maxSegmentBytes, FsyncPolicy policy, long fsyncIntervalMillis,
+                       Format format) throws IOException {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.policy = policy;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+        this.format = format;
+
+        Files.createDirectories(directory);
+        this.segment = Math.max(1, newestSegment());
+        this.recoveredBytes = format == Format.CHECKSUMMED && Files.exists(segmentPath(segment))
+                ? ChecksummedBillRecords.recover(segmentPath(segment))
+                : 0;
+        this.channel = openSegment(segment);
+
+        this.writer = new Thread(this::runWriter, "bill-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public BillJournal(Path directory) throws IOException {
+        this(directory, 64L << 20, FsyncPolicy.INTERVAL, 100);
+    }
+
+    /*
+     * Appends bill to the journal. With the PER_BILL policy this waits until
+     * the bill has been forced to disk.
+     */
+    public void append(Bill bill) {
+        long start = System.nanoTime();
+
+        byte[] bytes;
+        if (format == Format.CHECKSUMMED) {
+            bytes = ChecksummedBillRecords.encode(bill);
+        } else {
+            StringBuilder text = new StringBuilder(64 + 32 * bill.getOrderItems().size());
+            BillLogger.appendText(bill, text);
+            bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        lock.lock();
+        try {
+            checkOpen();
+            pending.write(bytes, 0, bytes.length);
+            long sequence = ++appended;
+            workToDo.signal();
+
+            if (policy == FsyncPolicy.PER_BILL) {
+                while (synced < sequence) {
+                    checkFailure();
+                    progress.awaitUninterruptibly();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        billCount.increment();
+        recordLatency(System.nanoTime() - start);
+    }
+
+    /*
+     * Waits until every bill appended so far has been written to the
+     * channel, and forces it to disk.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            checkOpen();
+            long sequence = appended;
+            syncRequested = true;
+            workToDo.signal();
+            while (synced < sequence) {
+                checkFailure();
+                progress.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Writes and forces every pending bill, then closes the segment.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            workToDo.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public long getBillCount() {
+        return billCount.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /*
+     * Returns the number of writes to the channel; each write may hold
+     * many bills.
+     */
+    public long getWriteCount() {
+        return writeCount.sum();
+    }
+
+    public long getSyncCount() {
+        return syncCount.sum();
+    }
+
+    public long getAverageLatencyNanos() {
+        long bills = billCount.sum();
+        return bills == 0 ? 0 : totalLatencyNanos.sum() / bills;
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos.get();
+    }
+
+    /*
+     * Returns the number of bytes of torn records cut off the newest
+     * segment when the journal was opened.
+     */
+    public long getRecoveredBytes() {
+        return recoveredBytes;
+    }
+
+    /*
+     * Returns the number of bytes appended but not yet handed to the
+     * writer thread.
+     */
+    public long getPendingBytes() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Registers this journal's statistics as gauges in metrics, named
+     * journal.bills, journal.bytes, journal.writes, journal.syncs,
+     * journal.pending.bytes, journal.latency.mean and journal.latency.max.
+     */
+    public void registerMetrics(MetricsRegistry metrics) {
+        metrics.gauge("journal.bills", this::getBillCount);
+        metrics.gauge("journal.bytes", this::getBytesWritten);
+        metrics.gauge("journal.writes", this::getWriteCount);
+        metrics.gauge("journal.syncs", this::getSyncCount);
+        metrics.gauge("journal.pending.bytes", this::getPendingBytes);
+        metrics.gauge("journal.latency.mean", this::getAverageLatencyNanos);
+        metrics.gauge("journal.latency.max", this::getMaxLatencyNanos);
+    }
+
+    private void recordLatency(long nanos) {
+        totalLatencyNanos.add(nanos);
+        maxLatencyNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void checkOpen() {
+        checkFailure();
+        if (closed) {
+            throw new IllegalStateException("The bill journal is closed.");
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+    /*
+     * The writer thread: waits for bills, writes each batch in one call, and
+     * forces the channel according to the policy.
+     */
+    private void runWriter() {
+        try {
+            while (true) {
+                long batchEnd;
+                boolean closing;
+                boolean sync;
+
+                lock.lock();
+                try {
+                    while (pending.size() == 0 && !closed && !syncRequested && !intervalSyncDue()) {
+                        if (policy == FsyncPolicy.INTERVAL && written > synced) {
+                            workToDo.awaitNanos(fsyncIntervalNanos - (System.nanoTime() - lastSync));
+                        } else {
+                            workToDo.awaitUninterruptibly();
+                        }
+                    }
+
+                    ByteArrayOutputStream batch = pending;
+                    pending = writing;
+                    writing = batch;
+                    batchEnd = appended;
+                    closing = closed;
+                    sync = closing || syncRequested || policy == FsyncPolicy.PER_BILL
+                            || policy == FsyncPolicy.INTERVAL && System.nanoTime() - lastSync >= fsyncIntervalNanos;
+                    syncRequested = false;
+                } finally {
+                    lock.unlock();
+                }
+
+                if (writing.size() > 0) {
+                    write(writing.toByteArray());
+                    writing.reset();
+                }
+
+                if (sync) {
+                    channel.force(false);
+                    syncCount.increment();
+                    lastSync = System.nanoTime();
+                }
+
+                lock.lock();
+                try {
+                    written = batchEnd;
+                    if (sync) {
+                        synced = batchEnd;
+                    }
+                    progress.signalAll();
+                    if (closing && pending.size() == 0) {
+                        break;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            channel.close();
+        } catch (Throwable e) {
+            // Whatever stopped the writer fails every waiting and later
+            // append, rather than leaving them to wait forever.
+            lock.lock();
+            try {
+                failure = e instanceof IOException ? (IOException) e
+                        : new IOException("The bill journal writer failed.", e);
+                progress.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // The first failure is the one reported.
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+        }
+    }
+
+    /*
+     * Returns whether the INTERVAL policy calls for forcing bills that have
+     * been written but not yet forced. Called with lock held.
+     */
+    private boolean intervalSyncDue() {
+        return policy == FsyncPolicy.INTERVAL && written > synced
+                && System.nanoTime() - lastSync >= fsyncIntervalNanos;
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        bytesWritten.add(bytes.length);
+        writeCount.increment();
+
+        if (channel.size() >= maxSegmentBytes) {
+            channel.force(false);
+            syncCount.increment();
+            channel.close();
+            segment++;
+            channel = openSegment(segment);
+        }
+    }
+
+    /*
+     * Returns the highest number of a segment in the directory, or 0 if
+     * there is none. Older segments may have been removed, so the numbers
+     * need not start at 1.
+     */
+    private int newestSegment() throws IOException {
+        String suffix = format == Format.CHECKSUMMED ? ".wal" : ".txt";
+        int newest = 0;
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + suffix)) {
+            for (Path path : segments) {
+                String name = path.getFileName().toString();
+                String digits = name.substring(SEGMENT_PREFIX.length(), name.length() - suffix.length());
+                if (!digits.isEmpty() && digits.length() <= 9 && digits.chars().allMatch(Character::isDigit)) {
+                    newest = Math.max(newest, Integer.parseInt(digits));
+                }
+            }
+        }
+        return newest;
+    }
+
+    private Path segmentPath(int number) {
+        String name = format == Format.CHECKSUMMED ? ChecksummedBillRecords.SEGMENT_FORMAT : SEGMENT_FORMAT;
+        return directory.resolve(String.format(name, number));
+    }
+
+    private FileChannel openSegment(int number) throws IOException {
+        FileChannel opened = FileChannel.open(segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (format == Format.CHECKSUMMED && opened.size() == 0) {
+            ByteBuffer header = ByteBuffer.wrap(ChecksummedBillRecords.segmentHeader());
+            while (header.hasRemaining()) {
+                opened.write(header);
+            }
+        }
+        return opened;
+    }
+}
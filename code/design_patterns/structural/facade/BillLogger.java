@@ -1,8 +1,11 @@
 package design_patterns.structural.facade;
 
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.LongAdder;
 
 
 public class BillLogger {
@@ -12,14 +15,77 @@ public class BillLogger {
      */
     File file;
 
+    /*
+     * Appends bills to a rolling log instead, or null to overwrite file.
+     */
+    private final BillJournal journal;
+
+    private final LongAdder bills;
+    private final LongAdder bytes;
+    private final LongAdder failures;
+    private final LatencyHistogram latency;
+    private final MessageSink messages;
+
 
     public BillLogger() {
-        createFile();
+        this(null, MetricsRegistry.NONE, MessageSink.DEFAULT);
+    }
+
+    /*
+     * Creates a logger that appends every bill to journal instead of
+     * overwriting bill-log.txt.
+     */
+    public BillLogger(BillJournal journal) {
+        this(journal, MetricsRegistry.NONE, MessageSink.DEFAULT);
+    }
+
+    /*
+     * Creates a logger that writes to journal, or to bill-log.txt if
+     * journal is null, and records logger.bills, logger.bytes,
+     * logger.failures and logger.latency in metrics. Bytes are only
+     * counted here when writing to bill-log.txt; a journal counts its own.
+     */
+    public BillLogger(BillJournal journal, MetricsRegistry metrics, MessageSink messages) {
+        this.journal = journal;
+        if (journal == null) {
+            createFile();
+        }
+        this.bills = metrics.counter("logger.bills");
+        this.bytes = metrics.counter("logger.bytes");
+        this.failures = metrics.counter("logger.failures");
+        this.latency = metrics.histogram("logger.latency");
+        this.messages = messages;
     }
 
 
     public void log(Bill bill) {
-        writeInFile(bill);
+        long start = System.nanoTime();
+        try {
+            if (journal != null) {
+                journal.append(bill);
+            } else if (!writeInFile(bill)) {
+                return;
+            }
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        }
+        latency.record(System.nanoTime() - start);
+        bills.increment();
+    }
+
+
+    /*
+     * Appends the logged form of bill: its id, one line per order item,
+     * and its total.
+     */
+    static void appendText(Bill bill, StringBuilder out) {
+        out.append(bill.getID()).append('\n');
+
+        for (OrderItem it : bill.getOrderItems())
+            out.append(it.toString()).append('\n');
+
+        out.append(bill.getTotal()).append('\n');
     }
 
 
@@ -32,22 +98,25 @@ public class BillLogger {
     }
 
 
-    private void writeInFile(Bill bill) {
-        try {
-            FileWriter myWriter = new FileWriter(file);
-
-            myWriter.write(bill.getID() + "\n");
-
-            for (OrderItem it : bill.getOrderItems())
-                myWriter.write(it.toString() + "\n");
-
-            myWriter.write(bill.getTotal() + "\n");
+    /*
+     * Returns false if the bill could not be written, after counting the
+     * failure.
+     */
+    private boolean writeInFile(Bill bill) {
+        try (OutputStream myWriter = new FileOutputStream(file)) {
 
-            myWriter.close();
+            StringBuilder text = new StringBuilder();
+            appendText(bill, text);
+            byte[] encoded = text.toString().getBytes(Charset.defaultCharset());
+            myWriter.write(encoded);
+            bytes.add(encoded.length);
 
-            System.out.println("Message from Logger: The bill has been logged in " + file.getName() + " in the current directory.");
+            messages.message("Message from Logger: The bill has been logged in " + file.getName() + " in the current directory.");
+            return true;
         } catch (IOException e) {
+            failures.increment();
             e.printStackTrace();
+            return false;
         }
     }
 
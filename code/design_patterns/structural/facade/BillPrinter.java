@@ -1,8 +1,11 @@
 package design_patterns.structural.facade;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.LongAdder;
 
 public class BillPrinter {
 
@@ -13,36 +16,72 @@ public class BillPrinter {
 
     File file;
 
+    // Shared with subclasses, which print in their own way.
+    final LongAdder bills;
+    final LongAdder bytes;
+    final LongAdder failures;
+    final LatencyHistogram latency;
+    final MessageSink messages;
+
     public BillPrinter() {
+        this(MetricsRegistry.NONE, MessageSink.DEFAULT);
+    }
+
+    /*
+     * Creates a printer that records printer.bills, printer.bytes,
+     * printer.failures and printer.latency in metrics.
+     */
+    public BillPrinter(MetricsRegistry metrics, MessageSink messages) {
         file = new File("printer-input.txt");
+        this.bills = metrics.counter("printer.bills");
+        this.bytes = metrics.counter("printer.bytes");
+        this.failures = metrics.counter("printer.failures");
+        this.latency = metrics.histogram("printer.latency");
+        this.messages = messages;
     }
 
     public void print(Bill bill) {
+        long start = System.nanoTime();
 
+        try (OutputStream o = new FileOutputStream(file)) {
 
-        try {
-            PrintStream o = new PrintStream(file);
+            // Write to the file's own stream rather than redirecting
+            // System.out, which would also capture other threads' output.
+            StringBuilder text = new StringBuilder();
+            appendText(bill, text);
+            byte[] encoded = text.toString().getBytes(Charset.defaultCharset());
+            o.write(encoded);
+            bytes.add(encoded.length);
 
-            PrintStream console = System.out;
-
-            System.setOut(o);
+            messages.message("Message from Printer: The bill has been printed to " + file.getName() + " in the current directory "
+                    + "to be printed by the printer.");
 
-            System.out.println("BillID:" + bill.getID());
+        } catch (IOException ex) {
+            failures.increment();
+            ex.printStackTrace();
+            return;
+        }
 
-            for (OrderItem it : bill.getOrderItems())
-                System.out.println("Item: " + it.getItem().getName() + "   " + it.getItem().getPrice() + "$   " + "Quantity:" + it.getQuantity());
+        latency.record(System.nanoTime() - start);
+        bills.increment();
+    }
 
-            System.out.println("Total Price: " + (bill.getTotal() + "$\n"));
 
-            System.setOut(console);
+    /*
+     * Appends the printed form of bill: its id, one line per order item,
+     * and its total.
+     */
+    static void appendText(Bill bill, StringBuilder out) {
+        String newLine = System.lineSeparator();
 
-            System.out.println("Message from Printer: The bill has been printed to " + file.getName() + " in the current directory "
-                    + "to be printed by the printer.");
+        out.append("BillID:").append(bill.getID()).append(newLine);
 
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
+        for (OrderItem it : bill.getOrderItems())
+            out.append("Item: ").append(it.getItem().getName()).append("   ")
+                    .append(it.getItem().getPrice()).append("$   ")
+                    .append("Quantity:").append(it.getQuantity()).append(newLine);
 
+        out.append("Total Price: ").append(bill.getTotal()).append("$\n").append(newLine);
     }
 
 }
@@ -0,0 +1,210 @@
+package design_patterns.structural.facade;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+public class BinaryBillLogReader {
+
+    /*
+     * Reads a file written by BinaryBillLogWriter through a read-only
+     * memory-mapped buffer.
+     *
+     * Records are visited in place through a Record view, so scanning the
+     * file copies no bytes and creates no objects per bill. Bill and
+     * OrderItem objects are only built when replay() is used.
+     */
+
+    private final ByteBuffer buffer;
+
+    public BinaryBillLogReader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.limit() < BinaryBillLogWriter.FILE_HEADER_BYTES
+                || buffer.getInt(0) != BinaryBillLogWriter.MAGIC) {
+            throw new IOException(path + " is not a binary bill log.");
+        }
+        if (buffer.getInt(4) != BinaryBillLogWriter.VERSION) {
+            throw new IOException(path + " has unknown version " + buffer.getInt(4) + ".");
+        }
+    }
+
+    /*
+     * Calls action with a view of each record in the file, in order. The
+     * same Record object is reused for every record, so it must not be kept
+     * after action returns.
+     */
+    public void forEach(Consumer<Record> action) {
+        Record record = new Record();
+        for (int offset = BinaryBillLogWriter.FILE_HEADER_BYTES; record.moveTo(offset); offset += record.length()) {
+            action.accept(record);
+        }
+    }
+
+    /*
+     * Returns a view of the first record for the bill with the given id, or
+     * null if there is none. Only each record's header is read.
+     */
+    public Record find(int billId) {
+        Record record = new Record();
+        for (int offset = BinaryBillLogWriter.FILE_HEADER_BYTES; record.moveTo(offset); offset += record.length()) {
+            if (record.getBillId() == billId) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Returns the bills in the file, in order. Each Bill is built only when
+     * the iterator reaches it.
+     */
+    public Iterable<Bill> replay() {
+        return () -> new Iterator<Bill>() {
+
+            private final Record record = new Record();
+            private int offset = BinaryBillLogWriter.FILE_HEADER_BYTES;
+
+            @Override
+            public boolean hasNext() {
+                return record.moveTo(offset);
+            }
+
+            @Override
+            public Bill next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                offset += record.length();
+                return record.toBill();
+            }
+        };
+    }
+
+    /*
+     * A view of one record in the mapped file.
+     */
+    public class Record {
+
+        private int offset;
+        private int length;
+
+        // The position of the next order item to locate, and its index.
+        private int itemOffset;
+        private int itemIndex;
+
+        /*
+         * Points this view at the record starting at offset. Returns false
+         * if there is no record there.
+         */
+        boolean moveTo(int offset) {
+            if (offset + 4 > buffer.limit()) {
+                return false;
+            }
+            int length = buffer.getInt(offset);
+            if (length < BinaryBillLogWriter.RECORD_HEADER_BYTES || offset + length > buffer.limit()) {
+                return false;
+            }
+
+            this.offset = offset;
+            this.length = length;
+            this.itemOffset = offset + BinaryBillLogWriter.RECORD_HEADER_BYTES;
+            this.itemIndex = 0;
+            return true;
+        }
+
+        int length() {
+            return length;
+        }
+
+        public int getBillId() {
+            return buffer.getInt(offset + 4);
+        }
+
+        public double getTotal() {
+            return buffer.getDouble(offset + 8);
+        }
+
+        public int getItemCount() {
+            return buffer.getInt(offset + 16);
+        }
+
+        public double getPrice(int item) {
+            return buffer.getDouble(locate(item));
+        }
+
+        public int getQuantity(int item) {
+            return buffer.getInt(locate(item) + 8);
+        }
+
+        /*
+         * Returns the name of the item. Unlike the other getters, this
+         * creates a String.
+         */
+        public String getItemName(int item) {
+            int at = locate(item);
+            int nameLength = buffer.getShort(at + 12);
+            byte[] name = new byte[nameLength];
+            buffer.get(at + BinaryBillLogWriter.ITEM_HEADER_BYTES, name);
+            return new String(name, StandardCharsets.UTF_8);
+        }
+
+        /*
+         * Returns whether the name of the item equals name, without
+         * creating a String.
+         */
+        public boolean itemNameEquals(int item, byte[] utf8Name) {
+            int at = locate(item);
+            if (buffer.getShort(at + 12) != utf8Name.length) {
+                return false;
+            }
+            int start = at + BinaryBillLogWriter.ITEM_HEADER_BYTES;
+            for (int i = 0; i < utf8Name.length; i++) {
+                if (buffer.get(start + i) != utf8Name[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /*
+         * Rebuilds the Bill this record was written from.
+         */
+        public Bill toBill() {
+            Bill bill = new Bill(getBillId());
+            for (int i = 0; i < getItemCount(); i++) {
+                bill.add(new FoodItem(getItemName(i), getPrice(i)), getQuantity(i));
+            }
+            bill.setTotal(getTotal());
+            return bill;
+        }
+
+        /*
+         * Returns the position of the item. Items have variable length, so
+         * this walks forward from the last item located; reading the items
+         * in order costs one step each.
+         */
+        private int locate(int item) {
+            if (item < 0 || item >= getItemCount()) {
+                throw new IndexOutOfBoundsException("Item " + item + " of " + getItemCount());
+            }
+            if (item < itemIndex) {
+                itemOffset = offset + BinaryBillLogWriter.RECORD_HEADER_BYTES;
+                itemIndex = 0;
+            }
+            while (itemIndex < item) {
+                itemOffset += BinaryBillLogWriter.ITEM_HEADER_BYTES + buffer.getShort(itemOffset + 12);
+                itemIndex++;
+            }
+            return itemOffset;
+        }
+    }
+}
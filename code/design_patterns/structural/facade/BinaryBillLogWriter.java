@@ -0,0 +1,139 @@
+package design_patterns.structural.facade;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class BinaryBillLogWriter implements Closeable {
+
+    /*
+     * Writes bills to a file in a compact binary format, through a
+     * memory-mapped buffer. The file is read back by BinaryBillLogReader.
+     *
+     * The file starts with MAGIC and VERSION (ints), followed by one record
+     * per bill:
+     *
+     *   int    record length in bytes, including this field
+     *   int    bill id
+     *   double total
+     *   int    number of order items
+     *   then for each order item:
+     *     double price
+     *     int    quantity
+     *     short  length of the item name in bytes
+     *     byte[] item name in UTF-8
+     *
+     * A record length of 0 marks the end of the records. A mapped buffer is
+     * limited to 2 GiB, and so is the file.
+     *
+     * The file grows with the mapping, in doubling steps, and is left at
+     * that size on close, padded with zeros after the end marker: a file
+     * can't be truncated while it is still mapped on every platform, and
+     * Java has no way to unmap it.
+     *
+     * A writer is not thread-safe; callers that share one must lock it.
+     */
+
+    static final int MAGIC = 0x42494C4C; // "BILL"
+    static final int VERSION = 1;
+    static final int FILE_HEADER_BYTES = 8;
+    static final int RECORD_HEADER_BYTES = 4 + 4 + 8 + 4;
+    static final int ITEM_HEADER_BYTES = 8 + 4 + 2;
+
+    private static final int INITIAL_MAPPING = 1 << 20;
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long billCount = 0;
+
+    /*
+     * Creates the file at path, replacing any file that is already there.
+     */
+    public BinaryBillLogWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_MAPPING);
+        buffer.putInt(MAGIC).putInt(VERSION);
+    }
+
+    /*
+     * Appends bill to the file.
+     */
+    public void write(Bill bill) throws IOException {
+        if (buffer == null) {
+            throw new ClosedChannelException();
+        }
+        int itemCount = bill.getOrderItems().size();
+        byte[][] names = new byte[itemCount][];
+        int length = RECORD_HEADER_BYTES;
+        for (int i = 0; i < itemCount; i++) {
+            names[i] = bill.getOrderItems().get(i).getItem().getName().getBytes(StandardCharsets.UTF_8);
+            if (names[i].length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Item name too long: " + names[i].length + " bytes");
+            }
+            length += ITEM_HEADER_BYTES + names[i].length;
+        }
+
+        // Leave room for the 0 that marks the end of the records.
+        ensureRoom(length + 4);
+
+        buffer.putInt(length).putInt(bill.getID()).putDouble(bill.getTotal()).putInt(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            OrderItem item = bill.getOrderItems().get(i);
+            buffer.putDouble(item.getItem().getPrice())
+                    .putInt(item.getQuantity())
+                    .putShort((short) names[i].length)
+                    .put(names[i]);
+        }
+        billCount++;
+    }
+
+    public long getBillCount() {
+        return billCount;
+    }
+
+    /*
+     * Forces the written records to disk. Does nothing once the writer is
+     * closed.
+     */
+    public void flush() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    /*
+     * Writes the end marker and forces the records to disk. Closing a
+     * closed writer does nothing.
+     */
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        buffer.putInt(buffer.position(), 0);
+        buffer.force();
+        buffer = null;
+        channel.close();
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+
+        int position = buffer.position();
+        long size = Math.max((long) buffer.capacity() * 2, (long) position + bytes);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("The binary bill log is full.");
+        }
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.position(position);
+    }
+}
@@ -0,0 +1,224 @@
+package design_patterns.structural.facade;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+public class ChecksummedBillRecords {
+
+    /*
+     * The record format of a BillJournal opened with Format.CHECKSUMMED,
+     * and the scan that recovers such a journal after a crash.
+     *
+     * Each segment starts with SEGMENT_MAGIC and VERSION (ints), followed
+     * by one record per bill:
+     *
+     *   int    length of the payload in bytes
+     *   int    CRC32C of the payload
+     *   payload:
+     *     int    bill id
+     *     double total
+     *     int    number of order items
+     *     then for each order item:
+     *       double price
+     *       int    quantity
+     *       short  length of the item name in bytes
+     *       byte[] item name in UTF-8
+     *
+     * A crash can leave the end of the newest segment half written. The
+     * recovery scan reads the segment once from the start and cuts it off
+     * at the first record that is incomplete or fails its checksum; every
+     * record before that point was written whole. Older segments were
+     * forced to disk before the journal moved on from them.
+     */
+
+    static final String SEGMENT_FORMAT = "bill-log-%06d.wal";
+    static final int SEGMENT_MAGIC = 0x4257414C; // "BWAL"
+    static final int VERSION = 1;
+    static final int SEGMENT_HEADER_BYTES = 8;
+    static final int RECORD_HEADER_BYTES = 4 + 4;
+
+    // Larger lengths can only come from a torn or corrupt record.
+    static final int MAX_PAYLOAD_BYTES = 16 << 20;
+
+    private static final int READ_BUFFER_BYTES = 1 << 16;
+
+    private ChecksummedBillRecords() {
+    }
+
+    /*
+     * Returns the header that starts every segment.
+     */
+    static byte[] segmentHeader() {
+        return ByteBuffer.allocate(SEGMENT_HEADER_BYTES).putInt(SEGMENT_MAGIC).putInt(VERSION).array();
+    }
+
+    /*
+     * Returns bill as one framed, checksummed record.
+     */
+    static byte[] encode(Bill bill) {
+        int itemCount = bill.getOrderItems().size();
+        byte[][] names = new byte[itemCount][];
+        int length = 4 + 8 + 4;
+        for (int i = 0; i < itemCount; i++) {
+            names[i] = bill.getOrderItems().get(i).getItem().getName().getBytes(StandardCharsets.UTF_8);
+            if (names[i].length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Item name too long: " + names[i].length + " bytes");
+            }
+            length += 8 + 4 + 2 + names[i].length;
+        }
+        if (length > MAX_PAYLOAD_BYTES) {
+            throw new IllegalArgumentException("Bill too large to log: " + length + " bytes");
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + length);
+        record.position(RECORD_HEADER_BYTES);
+        record.putInt(bill.getID()).putDouble(bill.getTotal()).putInt(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            OrderItem item = bill.getOrderItems().get(i);
+            record.putDouble(item.getItem().getPrice())
+                    .putInt(item.getQuantity())
+                    .putShort((short) names[i].length)
+                    .put(names[i]);
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), RECORD_HEADER_BYTES, length);
+        record.putInt(0, length).putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+
+    /*
+     * Cuts the segment at path off after its last whole record, and returns
+     * the number of bytes cut off. A segment too short to hold its header
+     * is emptied.
+     *
+     * Throws IOException if the segment does not start with the segment
+     * header, since it was then not written by a BillJournal at all.
+     */
+    static long recover(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long end = scan(channel, path, null);
+            if (end < size) {
+                channel.truncate(end);
+                channel.force(false);
+            }
+            return size - end;
+        }
+    }
+
+    /*
+     * Passes every whole record of every segment in directory, oldest
+     * first, to action as a Bill.
+     */
+    public static void replay(Path directory, Consumer<Bill> action) throws IOException {
+        for (int number = 1; ; number++) {
+            Path path = directory.resolve(String.format(SEGMENT_FORMAT, number));
+            if (!Files.exists(path)) {
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                scan(channel, path, action);
+            }
+        }
+    }
+
+    /*
+     * Reads channel from the start and returns the offset just past its
+     * last whole record, passing each record to action if it is not null.
+     */
+    private static long scan(FileChannel channel, Path path, Consumer<Bill> action) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        buffer.flip();
+
+        if (!fill(channel, buffer, SEGMENT_HEADER_BYTES)) {
+            return 0;
+        }
+        if (buffer.getInt() != SEGMENT_MAGIC) {
+            throw new IOException(path + " is not a checksummed bill log segment.");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException(path + " has unsupported version " + version + ".");
+        }
+
+        long end = SEGMENT_HEADER_BYTES;
+        CRC32C crc = new CRC32C();
+        while (fill(channel, buffer, RECORD_HEADER_BYTES)) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > MAX_PAYLOAD_BYTES) {
+                break;
+            }
+            if (buffer.capacity() < length) {
+                buffer = grow(buffer, length);
+            }
+            if (!fill(channel, buffer, length)) {
+                break;
+            }
+
+            crc.reset();
+            int payloadStart = buffer.position();
+            crc.update(buffer.array(), buffer.arrayOffset() + payloadStart, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            if (action != null) {
+                action.accept(decode(buffer));
+            }
+            buffer.position(payloadStart + length);
+            end += RECORD_HEADER_BYTES + length;
+        }
+        return end;
+    }
+
+    private static Bill decode(ByteBuffer payload) {
+        Bill bill = new Bill(payload.getInt());
+        double total = payload.getDouble();
+        int itemCount = payload.getInt();
+        for (int i = 0; i < itemCount; i++) {
+            double price = payload.getDouble();
+            int quantity = payload.getInt();
+            byte[] name = new byte[payload.getShort()];
+            payload.get(name);
+            bill.add(new FoodItem(new String(name, StandardCharsets.UTF_8), price), quantity);
+        }
+        bill.setTotal(total);
+        return bill;
+    }
+
+    /*
+     * Reads from channel until buffer has at least bytes bytes remaining,
+     * and returns false if the channel ends first. The buffer is left ready
+     * for reading.
+     */
+    private static boolean fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int bytes) {
+        ByteBuffer larger = ByteBuffer.allocate(Integer.highestOneBit(bytes) << 1);
+        larger.put(buffer);
+        larger.flip();
+        return larger;
+    }
+}
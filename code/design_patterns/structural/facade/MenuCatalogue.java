@@ -0,0 +1,186 @@
+package design_patterns.structural.facade;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class MenuCatalogue {
+
+    /*
+     * The menu: one shared FoodItem per dish and price, so that taking an
+     * order does not create a new FoodItem for every line.
+     *
+     * Every FoodItem in the catalogue has an index, which PackedBill uses
+     * in place of an object reference. Only intern and retire change the
+     * menu: changing a dish's price creates a new FoodItem with a new index
+     * and bumps the catalogue's version, and the old FoodItem is retired.
+     * Indexes are never reused, so bills that refer to a retired item stay
+     * valid.
+     *
+     * Looking an item up by name and price finds the current FoodItem or
+     * one of the most recently retired ones, and leaves the menu alone, so
+     * a client holding an old FoodItem can't change the price back. Only
+     * maxRetired retired items can be looked up that way; older ones are
+     * evicted from the lookup. A price the dish has never had, or whose
+     * item has been evicted, is rejected rather than added, so callers
+     * can't make the catalogue grow: it only grows when intern changes the
+     * menu.
+     *
+     * All methods are safe to call from many threads.
+     */
+
+    private final int maxRetired;
+
+    // Guarded by this. retired holds the most recently retired items by
+    // name and price, least recently used first.
+    private final Map<String, Integer> current = new HashMap<>();
+    private final LinkedHashMap<String, Integer> retired;
+    private int size = 0;
+    private long version = 0;
+
+    // Replaced by larger copies under this; read without locking.
+    private volatile FoodItem[] items = new FoodItem[64];
+    private volatile long[] priceCents = new long[64];
+
+    public MenuCatalogue() {
+        this(1024);
+    }
+
+    /*
+     * Creates a catalogue that remembers at most maxRetired retired items
+     * for lookup by name and price.
+     */
+    public MenuCatalogue(int maxRetired) {
+        if (maxRetired < 0) {
+            throw new IllegalArgumentException("maxRetired must not be negative: " + maxRetired);
+        }
+        this.maxRetired = maxRetired;
+        this.retired = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > MenuCatalogue.this.maxRetired;
+            }
+        };
+    }
+
+    /*
+     * Returns the shared FoodItem for the dish name at price, adding the
+     * dish to the menu or changing its price if needed. A price the dish
+     * had recently reuses its retired FoodItem.
+     */
+    public synchronized FoodItem intern(String name, double price) {
+        Integer index = current.get(name);
+        if (index != null && items[index].getPrice() == price) {
+            return items[index];
+        }
+
+        Integer reused = retired.remove(key(name, price));
+        if (index != null) {
+            retired.put(key(name, items[index].getPrice()), index);
+        }
+        index = reused != null ? reused : add(new FoodItem(name, price));
+        current.put(name, index);
+        version++;
+        return items[index];
+    }
+
+    /*
+     * Returns the current FoodItem for the dish name, or null if it is not
+     * on the menu.
+     */
+    public synchronized FoodItem get(String name) {
+        Integer index = current.get(name);
+        return index == null ? null : items[index];
+    }
+
+    /*
+     * Takes the dish name off the menu. Bills that refer to it stay valid.
+     */
+    public synchronized void retire(String name) {
+        Integer index = current.remove(name);
+        if (index != null) {
+            retired.put(key(name, items[index].getPrice()), index);
+            version++;
+        }
+    }
+
+    /*
+     * Returns the index of the FoodItem for the dish name at exactly price,
+     * which is either on the menu or one of the most recently retired. The
+     * menu and its version are never changed.
+     *
+     * Throws IllegalArgumentException if there is no such FoodItem.
+     */
+    public synchronized int indexOf(String name, double price) {
+        Integer index = current.get(name);
+        if (index != null && items[index].getPrice() == price) {
+            return index;
+        }
+
+        index = retired.get(key(name, price));
+        if (index == null) {
+            throw new IllegalArgumentException(name + " at " + price + " is not on the menu.");
+        }
+        return index;
+    }
+
+    /*
+     * Returns the index of item, which may or may not have come from this
+     * catalogue.
+     */
+    public synchronized int indexOf(FoodItem item) {
+        Integer index = current.get(item.getName());
+        if (index != null && items[index] == item) {
+            return index;
+        }
+        return indexOf(item.getName(), item.getPrice());
+    }
+
+    /*
+     * Returns the FoodItem with the given index.
+     */
+    public FoodItem getItem(int index) {
+        return items[index];
+    }
+
+    /*
+     * Returns the price of the FoodItem with the given index, in cents.
+     */
+    public long getPriceCents(int index) {
+        return priceCents[index];
+    }
+
+    /*
+     * Returns a number that changes whenever a price changes or a dish is
+     * added or retired, so that cached menus can tell they are stale.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /*
+     * Returns the number of FoodItems ever added, including retired ones.
+     * Their indexes run from 0 to size() - 1.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private int add(FoodItem item) {
+        FoodItem[] newItems = size == items.length ? Arrays.copyOf(items, size * 2) : items;
+        long[] newPrices = size == priceCents.length ? Arrays.copyOf(priceCents, size * 2) : priceCents;
+        newPrices[size] = BillCalculator.toCents(item.getPrice());
+        newItems[size] = item;
+
+        // Writing the volatile fields publishes the new entries to readers
+        // that don't take the lock.
+        priceCents = newPrices;
+        items = newItems;
+        return size++;
+    }
+
+    private static String key(String name, double price) {
+        return name + '\u0000' + price;
+    }
+}
@@ -0,0 +1,28 @@
+package design_patterns.structural.facade;
+
+public interface MessageSink {
+
+    /*
+     * Where the billing classes send their human-readable progress
+     * messages, such as "Message from Calculator: ...".
+     */
+
+    /*
+     * Prints every message to System.out.
+     */
+    MessageSink CONSOLE = System.out::println;
+
+    /*
+     * Drops every message.
+     */
+    MessageSink NONE = text -> {
+    };
+
+    /*
+     * The sink used when none is given: the console. Wrap a sink in a
+     * RateLimitedMessageSink to limit how many messages it passes on.
+     */
+    MessageSink DEFAULT = CONSOLE;
+
+    void message(String text);
+}
@@ -0,0 +1,64 @@
+package design_patterns.structural.facade;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public interface MetricsRegistry {
+
+    /*
+     * Where the billing classes keep their measurements: counters,
+     * latency histograms, and gauges that are read when asked for, such as
+     * queue depths.
+     *
+     * Each class looks up its counters and histograms once, when it is
+     * created, so recording a measurement costs no more than updating a
+     * LongAdder or a LatencyHistogram.
+     */
+
+    /*
+     * A registry that keeps nothing, for when measurements aren't wanted.
+     */
+    MetricsRegistry NONE = new MetricsRegistry() {
+        @Override
+        public LongAdder counter(String name) {
+            return new LongAdder();
+        }
+
+        @Override
+        public LatencyHistogram histogram(String name) {
+            return new LatencyHistogram();
+        }
+
+        @Override
+        public void gauge(String name, LongSupplier value) {
+        }
+
+        @Override
+        public Map<String, Number> snapshot() {
+            return Collections.emptyMap();
+        }
+    };
+
+    /*
+     * Returns the counter called name, creating it if needed.
+     */
+    LongAdder counter(String name);
+
+    /*
+     * Returns the latency histogram called name, creating it if needed.
+     */
+    LatencyHistogram histogram(String name);
+
+    /*
+     * Registers value as the gauge called name, replacing any earlier gauge
+     * with that name.
+     */
+    void gauge(String name, LongSupplier value);
+
+    /*
+     * Returns the current value of every measurement, by name.
+     */
+    Map<String, Number> snapshot();
+}
@@ -0,0 +1,115 @@
+package design_patterns.structural.facade;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PackedBill extends Bill {
+
+    /*
+     * A bill that stores each order line as a single long, holding the
+     * index of the FoodItem in a MenuCatalogue and the quantity, instead of
+     * as an OrderItem object.
+     *
+     * It can be used anywhere a Bill is expected. getOrderItems() returns a
+     * read-only view that creates OrderItems only when they are read.
+     */
+
+    private final MenuCatalogue catalogue;
+    private long[] lines = new long[4];
+    private int lineCount = 0;
+
+    public PackedBill(int id, MenuCatalogue catalogue) {
+        super(id);
+        this.catalogue = catalogue;
+    }
+
+    /*
+     * Adds quant of it at its own price, which may be a recently retired
+     * menu price. The menu is not changed.
+     *
+     * Throws IllegalArgumentException if that price is not on the menu and
+     * was not retired recently, or if quant is not positive.
+     */
+    @Override
+    public void add(FoodItem it, int quant) {
+        add(catalogue.indexOf(it), quant);
+    }
+
+    /*
+     * Adds quant of the dish name at its current menu price.
+     */
+    public void add(String name, int quant) {
+        FoodItem item = catalogue.get(name);
+        if (item == null) {
+            throw new IllegalArgumentException(name + " is not on the menu.");
+        }
+        add(item, quant);
+    }
+
+    /*
+     * Adds quant of the FoodItem with the given catalogue index.
+     *
+     * Throws IllegalArgumentException if the catalogue has no such index
+     * or quant is not positive.
+     */
+    public void add(int itemIndex, int quant) {
+        if (itemIndex < 0 || itemIndex >= catalogue.size()) {
+            throw new IllegalArgumentException("No menu item with index " + itemIndex);
+        }
+        if (quant <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + quant);
+        }
+        if (lineCount == lines.length) {
+            lines = Arrays.copyOf(lines, lineCount * 2);
+        }
+        lines[lineCount++] = ((long) itemIndex << 32) | (quant & 0xFFFFFFFFL);
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public int getItemIndex(int line) {
+        return (int) (lines[checkLine(line)] >>> 32);
+    }
+
+    public int getQuantity(int line) {
+        return (int) lines[checkLine(line)];
+    }
+
+    /*
+     * Returns the total of this bill in cents, without creating any
+     * OrderItems.
+     */
+    public long calculateTotalCents() {
+        long cents = 0;
+        for (int i = 0; i < lineCount; i++) {
+            long line = lines[i];
+            cents = Math.addExact(cents, Math.multiplyExact(catalogue.getPriceCents((int) (line >>> 32)), (int) line));
+        }
+        return cents;
+    }
+
+    @Override
+    public List<OrderItem> getOrderItems() {
+        return new AbstractList<OrderItem>() {
+            @Override
+            public OrderItem get(int index) {
+                return new OrderItem(catalogue.getItem(getItemIndex(index)), getQuantity(index));
+            }
+
+            @Override
+            public int size() {
+                return lineCount;
+            }
+        };
+    }
+
+    private int checkLine(int line) {
+        if (line < 0 || line >= lineCount) {
+            throw new IndexOutOfBoundsException("Line " + line + " of " + lineCount);
+        }
+        return line;
+    }
+}
@@ -0,0 +1,62 @@
+package design_patterns.structural.facade;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RateLimitedMessageSink implements MessageSink {
+
+    /*
+     * Passes on at most a fixed number of messages a second to another
+     * sink and drops the rest, so that issuing many bills does not spend
+     * its time printing. The first message let through after some were
+     * dropped says how many.
+     *
+     * Dropping a message takes no lock, so it is cheap on a busy path.
+     */
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final MessageSink target;
+    private final int messagesPerSecond;
+
+    // The start of the current one-second window, and the number of
+    // messages offered in it.
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public RateLimitedMessageSink(MessageSink target, int messagesPerSecond) {
+        if (messagesPerSecond <= 0) {
+            throw new IllegalArgumentException("messagesPerSecond must be positive: " + messagesPerSecond);
+        }
+        this.target = target;
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    @Override
+    public void message(String text) {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= SECOND && windowStart.compareAndSet(start, now)) {
+            offered.set(0);
+        }
+
+        if (offered.incrementAndGet() > messagesPerSecond) {
+            dropped.incrementAndGet();
+            return;
+        }
+
+        long skipped = dropped.getAndSet(0);
+        if (skipped > 0) {
+            target.message("(" + skipped + " messages dropped)");
+        }
+        target.message(text);
+    }
+
+    /*
+     * Returns the number of messages dropped and not yet reported.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,69 @@
+package design_patterns.structural.facade;
+
+import javax.management.ObjectName;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public class SimpleMetricsRegistry implements MetricsRegistry {
+
+    /*
+     * A MetricsRegistry that keeps its measurements in memory.
+     *
+     * A snapshot lists each counter and gauge under its own name, and each
+     * histogram as five values: name.count, name.mean, name.p50, name.p99
+     * and name.max, in nanoseconds.
+     */
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    @Override
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    @Override
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    @Override
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    @Override
+    public Map<String, Number> snapshot() {
+        Map<String, Number> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> snapshot.put(name, gauge.getAsLong()));
+        histograms.forEach((name, histogram) -> {
+            snapshot.put(name + ".count", histogram.getCount());
+            snapshot.put(name + ".mean", histogram.getMean());
+            snapshot.put(name + ".p50", histogram.getPercentile(50));
+            snapshot.put(name + ".p99", histogram.getPercentile(99));
+            snapshot.put(name + ".max", histogram.getMax());
+        });
+        return snapshot;
+    }
+
+    /*
+     * Publishes this registry over JMX as design_patterns.facade:type=name,
+     * replacing any registry published under that name, and returns the
+     * name it was given.
+     */
+    public ObjectName registerMBean(String name) {
+        return MetricsMBean.register(this, name);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        snapshot().forEach((name, value) -> text.append(name).append('=').append(value).append('\n'));
+        return text.toString();
+    }
+}
@@ -0,0 +1,165 @@
+package design_patterns.structural.facade;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SpoolingBillPrinter extends BillPrinter {
+
+    /*
+     * A printer that writes each print job to its own file in a spool
+     * directory, for the printer to pick up.
+     *
+     * Bills are formatted into a per-thread buffer that is reused from one
+     * job to the next, and written with a FileChannel. No global state is
+     * touched, so any number of threads can print at the same time. A job
+     * is written to a new temporary file and then renamed, so the printer
+     * never sees a half-written job.
+     *
+     * Jobs are named by the time they were spooled, then a number counting
+     * this printer's jobs, then the unique part of the temporary file's
+     * name, so they sort in the order they were printed and no two jobs
+     * share a name, even across restarts or with several printers on one
+     * spool directory. A job that can't be written leaves no file behind.
+     *
+     * Unlike BillPrinter, which only logs a failed print, print and
+     * printAll throw UncheckedIOException when a job can't be written, so
+     * that the caller, such as AsyncBillFacade, can fail the bill.
+     */
+
+    private static final String TEMPORARY_PREFIX = "job-";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path spoolDirectory;
+    private final AtomicLong jobNumber = new AtomicLong();
+
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    /*
+     * The reusable buffers of one thread.
+     */
+    private static class Buffers {
+        final StringBuilder text = new StringBuilder(1024);
+        final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(4096);
+    }
+
+    public SpoolingBillPrinter(Path spoolDirectory) throws IOException {
+        this(spoolDirectory, MetricsRegistry.NONE, MessageSink.DEFAULT);
+    }
+
+    public SpoolingBillPrinter(Path spoolDirectory, MetricsRegistry metrics, MessageSink messages)
+            throws IOException {
+        super(metrics, messages);
+        this.spoolDirectory = Files.createDirectories(spoolDirectory);
+    }
+
+    /*
+     * Writes bill as a print job of its own.
+     *
+     * Throws UncheckedIOException if the job can't be written.
+     */
+    @Override
+    public void print(Bill bill) {
+        long start = System.nanoTime();
+        Buffers b = buffers.get();
+        b.text.setLength(0);
+        appendText(bill, b.text);
+        spool(b, "bill-" + bill.getID());
+        latency.record(System.nanoTime() - start);
+        bills.increment();
+    }
+
+    /*
+     * Writes all of bills as a single print job.
+     *
+     * Throws UncheckedIOException if the job can't be written.
+     */
+    public void printAll(Collection<Bill> bills) {
+        if (bills.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Buffers b = buffers.get();
+        b.text.setLength(0);
+        for (Bill bill : bills) {
+            appendText(bill, b.text);
+        }
+        spool(b, "batch");
+        latency.record(System.nanoTime() - start);
+        this.bills.add(bills.size());
+    }
+
+    public Path getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    private void spool(Buffers b, String name) {
+        Path temporary = null;
+        try {
+            ByteBuffer encoded = encode(b);
+            int length = encoded.remaining();
+            temporary = Files.createTempFile(spoolDirectory, TEMPORARY_PREFIX, TEMPORARY_SUFFIX);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (encoded.hasRemaining()) {
+                    channel.write(encoded);
+                }
+            }
+
+            String temporaryName = temporary.getFileName().toString();
+            String unique = temporaryName.substring(TEMPORARY_PREFIX.length(),
+                    temporaryName.length() - TEMPORARY_SUFFIX.length());
+            String jobName = String.format("%013d-%08d-%s-%s.txt",
+                    System.currentTimeMillis(), jobNumber.incrementAndGet(), unique, name);
+            Files.move(temporary, spoolDirectory.resolve(jobName), StandardCopyOption.ATOMIC_MOVE);
+            temporary = null;
+            bytes.add(length);
+        } catch (IOException e) {
+            failures.increment();
+            throw new UncheckedIOException(e);
+        } finally {
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {
+                    // The job has failed already; a stray .tmp file is all
+                    // that is left, and the printer ignores those.
+                }
+            }
+            // Don't let one large batch keep large buffers for good.
+            if (b.text.capacity() > 1 << 20) {
+                b.text.setLength(0);
+                b.text.trimToSize();
+                b.bytes = ByteBuffer.allocateDirect(4096);
+            }
+        }
+    }
+
+    private static ByteBuffer encode(Buffers b) {
+        int maxBytes = (int) Math.ceil(b.text.length() * (double) b.encoder.maxBytesPerChar());
+        if (b.bytes.capacity() < maxBytes) {
+            b.bytes = ByteBuffer.allocateDirect(Integer.highestOneBit(maxBytes) << 1);
+        }
+
+        b.bytes.clear();
+        b.encoder.reset();
+        b.encoder.encode(CharBuffer.wrap(b.text), b.bytes, true);
+        b.encoder.flush(b.bytes);
+        b.bytes.flip();
+        return b.bytes;
+    }
+}
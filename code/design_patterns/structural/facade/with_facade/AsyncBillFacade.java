@@ -0,0 +1,164 @@
+package design_patterns.structural.facade.with_facade;
+
+import design_patterns.structural.facade.*;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AsyncBillFacade implements AutoCloseable {
+
+    /*
+     * A facade that issues bills without making the caller wait.
+     *
+     * issueBill returns at once with a future for the bill. The total is
+     * calculated on the executor; once it is known, the bill is logged and
+     * printed at the same time, and the future completes when both are
+     * done. The logger and printer must therefore be safe to call from
+     * several threads (BillJournal and SpoolingBillPrinter are).
+     *
+     * At most maxInFlight bills are issued at a time. A bill issued while
+     * the limit is reached is rejected straight away rather than queued, so
+     * the caller never blocks. A bill that takes longer than the timeout,
+     * or whose future is cancelled, fails; any step that has not started by
+     * then is skipped. A step already writing to disk can't be stopped, so
+     * the bill keeps its place in the limit until that step returns.
+     *
+     * Unless given an executor, the facade runs the steps on a small pool
+     * of its own, since they block on file I/O and would otherwise tie up
+     * the common pool that parallel streams use. close() shuts that pool
+     * down; an executor passed in is left to its owner.
+     */
+
+    private static final int IO_THREADS = 4;
+
+    private final BillCalculator calculator;
+    private final BillLogger logger;
+    private final BillPrinter printer;
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final Duration timeout;
+
+    public AsyncBillFacade(BillCalculator calculator, BillLogger logger, BillPrinter printer) {
+        this(calculator, logger, printer, null, 256, Duration.ofSeconds(5));
+    }
+
+    /*
+     * Creates a facade that runs its steps on executor, or on a pool of its
+     * own if executor is null.
+     */
+    public AsyncBillFacade(BillCalculator calculator, BillLogger logger, BillPrinter printer,
+                           Executor executor, int maxInFlight, Duration timeout) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        this.calculator = calculator;
+        this.logger = logger;
+        this.printer = printer;
+        this.ownExecutor = executor == null ? newIoExecutor(maxInFlight) : null;
+        this.executor = executor == null ? ownExecutor : executor;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.timeout = timeout;
+    }
+
+    // method that starts issuing bill and returns a future that completes with it once it is logged and printed
+    public CompletableFuture<Bill> issueBill(Bill bill) {
+        CompletableFuture<Bill> result = new CompletableFuture<>();
+        if (!inFlight.tryAcquire()) {
+            result.completeExceptionally(new RejectedExecutionException(
+                    "Too many bills in flight; bill " + bill.getID() + " was not issued."));
+            return result;
+        }
+
+        CompletableFuture<Bill> work;
+        try {
+            work = CompletableFuture
+                    .runAsync(() -> {
+                        if (!result.isDone()) {
+                            bill.setTotal(calculator.calculateTotal(bill));
+                        }
+                    }, executor)
+                    .thenCompose(ignored -> CompletableFuture.allOf(
+                            CompletableFuture.runAsync(() -> {
+                                if (!result.isDone()) {
+                                    logger.log(bill);
+                                }
+                            }, executor),
+                            CompletableFuture.runAsync(() -> {
+                                if (!result.isDone()) {
+                                    printer.print(bill);
+                                }
+                            }, executor)))
+                    .thenApply(ignored -> bill);
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        // The permit is released when the work is over, not when the result
+        // times out or is cancelled, so the limit counts bills still on disk.
+        work.whenComplete((done, failure) -> {
+            inFlight.release();
+            if (failure != null) {
+                result.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause() : failure);
+            } else {
+                result.complete(done);
+            }
+        });
+        return result.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    // returns how many more bills can be issued right now before new ones are rejected
+    public int availableSlots() {
+        return inFlight.availablePermits();
+    }
+
+    // returns how many bills are being issued right now
+    public int inFlightCount() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    // registers the number of bills in flight as the gauge async.inflight in metrics
+    public void registerMetrics(MetricsRegistry metrics) {
+        metrics.gauge("async.inflight", this::inFlightCount);
+    }
+
+    /*
+     * Shuts down the facade's own pool, if it has one, letting bills in
+     * flight finish. Bills issued afterwards fail with
+     * RejectedExecutionException.
+     */
+    @Override
+    public void close() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    /*
+     * Each bill has at most two steps waiting at a time, so a queue of
+     * twice maxInFlight is never full while the limit holds.
+     */
+    private static ExecutorService newIoExecutor(int maxInFlight) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(IO_THREADS, IO_THREADS, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(2 * maxInFlight), runnable -> {
+                    Thread thread = new Thread(runnable, "async-bill-io-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+}
@@ -2,17 +2,34 @@ package design_patterns.structural.facade.with_facade;
 
 import design_patterns.structural.facade.*;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
 public class BillFacade {
 
     private final Bill bill;
     private final BillCalculator calculator;
     private final BillLogger logger;
     private final BillPrinter printer;
+    private BillAnalytics analytics;
+
+    private final MetricsRegistry metrics;
+    private final LongAdder billsIssued;
+    private final LatencyHistogram issueLatency;
 
     public BillFacade() {
-        this.calculator = new BillCalculator();
-        this.logger = new BillLogger();
-        this.printer = new BillPrinter();
+        this(MetricsRegistry.NONE, MessageSink.DEFAULT);
+    }
+
+    // creates a facade whose subsystems record their measurements in metrics and send their messages to messages
+    public BillFacade(MetricsRegistry metrics, MessageSink messages) {
+        this.metrics = metrics;
+        this.calculator = new BillCalculator(metrics, messages);
+        this.logger = new BillLogger(null, metrics, messages);
+        this.printer = new BillPrinter(metrics, messages);
+        this.billsIssued = metrics.counter("facade.bills");
+        this.issueLatency = metrics.histogram("facade.latency");
 
         // Set up a sample bill during construction
         bill = new Bill(1);
@@ -20,14 +37,30 @@ public class BillFacade {
         bill.add(new FoodItem("Tuna Sandwich", 7), 2);
         bill.add(new FoodItem("Fanta", 3), 2);
 
-        System.out.println("Sample bill created in constructor.");
+        messages.message("Sample bill created in constructor.");
     }
 
     // method that interacts with the subsystems to perform the task of issuing the bill
     public void issueBill() {
+        long start = System.nanoTime();
         calculateTotal();
         logBill();
         printBill();
+        recordBill();
+        issueLatency.record(System.nanoTime() - start);
+        billsIssued.increment();
+    }
+
+    // method that issues many bills at once, overlapping the steps of different bills
+    public BillPipeline.Report issueBills(Stream<Bill> bills) throws InterruptedException {
+        BillPipeline pipeline = new BillPipeline(calculator, logger, printer, ForkJoinPool.commonPool(), 1024,
+                analytics, metrics);
+        return pipeline.run(bills);
+    }
+
+    // keeps every bill issued from now on in analytics for end-of-day reports; null stops recording
+    public void setAnalytics(BillAnalytics analytics) {
+        this.analytics = analytics;
     }
 
     private void calculateTotal() {
@@ -42,4 +75,10 @@ public class BillFacade {
     private void printBill() {
         printer.print(bill);
     }
+
+    private void recordBill() {
+        if (analytics != null) {
+            analytics.record(bill);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,232 @@
+package design_patterns.structural.facade.with_facade;
+
+import design_patterns.structural.facade.*;
+
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+public class BillPipeline {
+
+    /*
+     * Issues a stream of bills in three pipelined stages:
+     *
+     *   calculate -> log -> print
+     *
+     * Totals are calculated in parallel on a worker pool, since
+     * BillCalculator is stateless. Logging and printing each run on a
+     * thread of their own and take bills in the order they were given, so
+     * the log and the printer see the bills in their original order. The
+     * stages are connected by bounded queues: when a later stage falls
+     * behind, the earlier ones wait for it instead of piling up bills.
+     *
+     * If the pipeline is given a BillAnalytics store, each bill is recorded
+     * there once it has been printed. The number of bills waiting in each
+     * queue is reported to its MetricsRegistry as the gauges
+     * pipeline.calculated.depth and pipeline.logged.depth, which are
+     * registered once per pipeline and read 0 between runs.
+     */
+
+    /*
+     * The latency of each stage, per bill, for one run of the pipeline.
+     */
+    public static class Report {
+
+        private final LatencyHistogram calculateLatency = new LatencyHistogram();
+        private final LatencyHistogram logLatency = new LatencyHistogram();
+        private final LatencyHistogram printLatency = new LatencyHistogram();
+
+        public long getBillCount() {
+            return printLatency.getCount();
+        }
+
+        public LatencyHistogram getCalculateLatency() {
+            return calculateLatency;
+        }
+
+        public LatencyHistogram getLogLatency() {
+            return logLatency;
+        }
+
+        public LatencyHistogram getPrintLatency() {
+            return printLatency;
+        }
+
+        @Override
+        public String toString() {
+            return "calculate: " + calculateLatency + "\n"
+                    + "log:       " + logLatency + "\n"
+                    + "print:     " + printLatency;
+        }
+    }
+
+    private static final CompletableFuture<Bill> END_OF_CALCULATED = new CompletableFuture<>();
+    private static final Bill END_OF_LOGGED = new Bill(-1);
+
+    private final BillCalculator calculator;
+    private final BillLogger logger;
+    private final BillPrinter printer;
+    private final Executor workers;
+    private final int queueCapacity;
+    private final BillAnalytics analytics;
+
+    // The queues of the run in progress, or null between runs, so the
+    // gauges don't keep the queues of finished runs alive.
+    private volatile BlockingQueue<CompletableFuture<Bill>> calculatedQueue;
+    private volatile BlockingQueue<Bill> loggedQueue;
+
+    public BillPipeline(BillCalculator calculator, BillLogger logger, BillPrinter printer,
+                        Executor workers, int queueCapacity) {
+        this(calculator, logger, printer, workers, queueCapacity, null, MetricsRegistry.NONE);
+    }
+
+    public BillPipeline(BillCalculator calculator, BillLogger logger, BillPrinter printer,
+                        Executor workers, int queueCapacity, BillAnalytics analytics) {
+        this(calculator, logger, printer, workers, queueCapacity, analytics, MetricsRegistry.NONE);
+    }
+
+    public BillPipeline(BillCalculator calculator, BillLogger logger, BillPrinter printer,
+                        Executor workers, int queueCapacity, BillAnalytics analytics, MetricsRegistry metrics) {
+        this.calculator = calculator;
+        this.logger = logger;
+        this.printer = printer;
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+        this.analytics = analytics;
+        metrics.gauge("pipeline.calculated.depth", () -> depth(calculatedQueue));
+        metrics.gauge("pipeline.logged.depth", () -> depth(loggedQueue));
+    }
+
+    /*
+     * Issues every bill in bills and returns once all of them have been
+     * printed. If a stage fails, the remaining bills are not issued and the
+     * failure is rethrown here.
+     */
+    public Report run(Stream<Bill> bills) throws InterruptedException {
+        Report report = new Report();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        BlockingQueue<CompletableFuture<Bill>> calculated = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Bill> logged = new ArrayBlockingQueue<>(queueCapacity);
+        calculatedQueue = calculated;
+        loggedQueue = logged;
+
+        // Each stage catches everything a bill can throw and keeps draining
+        // its queue until the end-of-stream marker, which it always passes
+        // on, so no stage is left blocked on a stage that has stopped.
+        Thread logStage = new Thread(() -> {
+            try {
+                CompletableFuture<Bill> next;
+                while ((next = take(calculated, failure)) != END_OF_CALCULATED) {
+                    if (failure.get() != null) {
+                        continue;
+                    }
+                    try {
+                        Bill bill = next.join();
+                        long start = System.nanoTime();
+                        logger.log(bill);
+                        report.logLatency.record(System.nanoTime() - start);
+                        logged.put(bill);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null,
+                                e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                    }
+                }
+            } finally {
+                put(logged, END_OF_LOGGED, failure);
+            }
+        }, "bill-pipeline-log");
+
+        Thread printStage = new Thread(() -> {
+            Bill bill;
+            while ((bill = take(logged, failure)) != END_OF_LOGGED) {
+                if (failure.get() != null) {
+                    continue;
+                }
+                try {
+                    long start = System.nanoTime();
+                    printer.print(bill);
+                    report.printLatency.record(System.nanoTime() - start);
+                    if (analytics != null) {
+                        analytics.record(bill);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        }, "bill-pipeline-print");
+
+        logStage.start();
+        printStage.start();
+
+        try {
+            Iterator<Bill> it = bills.iterator();
+            while (it.hasNext() && failure.get() == null) {
+                Bill bill = it.next();
+                calculated.put(CompletableFuture.supplyAsync(() -> {
+                    long start = System.nanoTime();
+                    bill.setTotal(calculator.calculateTotal(bill));
+                    report.calculateLatency.record(System.nanoTime() - start);
+                    return bill;
+                }, workers));
+            }
+        } catch (Throwable e) {
+            // Stop the later stages from issuing the bills already queued.
+            failure.compareAndSet(null, e);
+            throw e;
+        } finally {
+            put(calculated, END_OF_CALCULATED, failure);
+            logStage.join();
+            printStage.join();
+            calculatedQueue = null;
+            loggedQueue = null;
+        }
+
+        Throwable cause = failure.get();
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        } else if (cause != null) {
+            throw new IllegalStateException("A pipeline stage was interrupted.", cause);
+        }
+        return report;
+    }
+
+    /*
+     * Takes the next element of queue. An interrupt fails the run instead
+     * of stopping the stage, which must keep draining its queue.
+     */
+    private static <T> T take(BlockingQueue<T> queue, AtomicReference<Throwable> failure) {
+        while (true) {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    /*
+     * Puts element on queue, even if interrupted, failing the run if so.
+     */
+    private static <T> void put(BlockingQueue<T> queue, T element, AtomicReference<Throwable> failure) {
+        while (true) {
+            try {
+                queue.put(element);
+                return;
+            } catch (InterruptedException e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    private static long depth(BlockingQueue<?> queue) {
+        return queue == null ? 0 : queue.size();
+    }
+}
@@ -1,5 +1,8 @@
 package design_patterns.structural.facade.with_facade;
 
+import design_patterns.structural.facade.MessageSink;
+import design_patterns.structural.facade.SimpleMetricsRegistry;
+
 public class Main {
 
     public static void main(String[] args) {
@@ -11,8 +14,12 @@ public class Main {
          * @since: 2020 - 08 - 31
          */
 
+        // the facade's measurements can be watched over JMX, e.g. in JConsole, while it runs
+        SimpleMetricsRegistry metrics = new SimpleMetricsRegistry();
+        metrics.registerMBean("BillFacade");
+
         // the bill facade hides all details of the underlying subsystems from the client!
-        BillFacade facade = new BillFacade();
+        BillFacade facade = new BillFacade(metrics, MessageSink.DEFAULT);
         /*
          * Issuing a bill is composed of several steps and requires interaction
          * between several objects that are declared inside the facade.